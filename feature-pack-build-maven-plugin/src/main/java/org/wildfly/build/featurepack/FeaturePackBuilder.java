@@ -16,7 +16,6 @@
 
 package org.wildfly.build.featurepack;
 
-import nu.xom.ParsingException;
 import org.jboss.logging.Logger;
 import org.wildfly.build.ArtifactFileResolver;
 import org.wildfly.build.ArtifactResolver;
@@ -31,12 +30,11 @@ import org.wildfly.build.pack.model.FeaturePackDescriptionXMLWriter11;
 import org.wildfly.build.pack.model.FeaturePackFactory;
 import org.wildfly.build.common.model.FileFilter;
 import org.wildfly.build.pack.model.ModuleIdentifier;
-import org.wildfly.build.util.FileUtils;
 import org.wildfly.build.util.ModuleParseResult;
 import org.wildfly.build.util.ModuleParser;
+import org.wildfly.build.util.Tasks;
 
 import javax.xml.stream.XMLStreamException;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
@@ -49,11 +47,16 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Task that builds a feature pack. In general this task assumes that some other tool will copy the files from the build
@@ -72,30 +75,119 @@ public class FeaturePackBuilder {
     private static final Logger logger = Logger.getLogger(FeaturePackBuilder.class);
 
     public static void build(FeaturePackBuild build, File serverDirectory, ArtifactResolver artifactResolver, ArtifactFileResolver artifactFileResolver) {
+        build(build, serverDirectory, artifactResolver, artifactFileResolver, 1);
+    }
+
+    /**
+     *
+     * @param build
+     * @param serverDirectory
+     * @param artifactResolver
+     * @param artifactFileResolver
+     * @param parallelism the number of worker threads used to parse the module.xml files and to convert line endings, 1 (or less) means no worker pool is used
+     */
+    public static void build(FeaturePackBuild build, File serverDirectory, ArtifactResolver artifactResolver, ArtifactFileResolver artifactFileResolver, int parallelism) {
 
         //List of errors that were encountered. These will be reported at the end so they are all reported in one go.
         final List<String> errors = new ArrayList<>();
-        final Set<ModuleIdentifier> knownModules = new HashSet<>();
-        final Map<Artifact, String> artifactVersionMap = new HashMap<>();
-        final FeaturePackDescription featurePackDescription = new FeaturePackDescription(build.getDependencies(), build.getConfig(), build.getCopyArtifacts(), build.getFilePermissions());
+        // one worker pool for all the build's tasks
+        final ExecutorService executorService = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
         try {
-            processDependencies(build.getDependencies(), knownModules, new HashSet<String>(), artifactResolver, artifactFileResolver, artifactVersionMap);
-            processModulesDirectory(knownModules, serverDirectory, artifactResolver, artifactVersionMap, errors);
-            processVersions(featurePackDescription, artifactResolver, artifactVersionMap);
-            processContentsDirectory(build, serverDirectory);
+            final FeaturePackDescription featurePackDescription = createFeaturePackDescription(build, serverDirectory, artifactResolver, artifactFileResolver, errors, executorService);
+            processContentsDirectory(build, serverDirectory, executorService);
             writeFeaturePackXml(featurePackDescription, serverDirectory);
         } catch (Exception e) {
             throw new RuntimeException(e);
         } finally {
-            if(!errors.isEmpty()) {
-                StringBuilder sb = new StringBuilder();
-                sb.append("Some errors were encountered creating the feature pack\n");
-                for(String error : errors) {
-                    sb.append(error);
-                    sb.append("\n");
-                }
-                throw new RuntimeException(sb.toString());
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+            reportErrors(errors);
+        }
+    }
+
+    /**
+     * Builds the feature pack zip straight from the feature pack sources, i.e. without copying the content, modules,
+     * configuration and subsystem templates to a server directory first. Line endings are converted, and the
+     * feature pack description is generated, while writing the zip, which is not written if errors are found.
+     *
+     * @param build
+     * @param sourcesDirectory the directory with the feature pack's content, modules, configuration and subsystem templates
+     * @param zipFile
+     * @param artifactResolver
+     * @param artifactFileResolver
+     * @param parallelism the number of worker threads used to parse the module.xml files, 1 (or less) means no worker pool is used
+     */
+    public static void buildZip(FeaturePackBuild build, File sourcesDirectory, File zipFile, ArtifactResolver artifactResolver, ArtifactFileResolver artifactFileResolver, int parallelism) {
+        buildZip(build, sourcesDirectory, zipFile, artifactResolver, artifactFileResolver, parallelism, -1);
+    }
+
+    /**
+     * Builds the feature pack zip straight from the feature pack sources, optionally as a reproducible zip, i.e. with
+     * the same bytes whenever built from the same sources, wherever these are, and whatever their last modified times.
+     *
+     * @param build
+     * @param sourcesDirectory the directory with the feature pack's content, modules, configuration and subsystem templates
+     * @param zipFile
+     * @param artifactResolver
+     * @param artifactFileResolver
+     * @param parallelism the number of worker threads used to parse the module.xml files, 1 (or less) means no worker pool is used
+     * @param entryTime the last modified time of all zip entries, in milliseconds since the epoch, for a reproducible zip, or -1 to use the source files' times
+     */
+    public static void buildZip(FeaturePackBuild build, File sourcesDirectory, File zipFile, ArtifactResolver artifactResolver, ArtifactFileResolver artifactFileResolver, int parallelism, long entryTime) {
+        //List of errors that were encountered. These will be reported at the end so they are all reported in one go.
+        final List<String> errors = new ArrayList<>();
+        // one worker pool for all the build's tasks
+        final ExecutorService executorService = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+        try {
+            // a zip from a previous build must not be left behind, if this one fails
+            Files.deleteIfExists(zipFile.toPath());
+            final FeaturePackDescription featurePackDescription = createFeaturePackDescription(build, sourcesDirectory, artifactResolver, artifactFileResolver, errors, executorService);
+            if (errors.isEmpty()) {
+                writeFeaturePackZip(build, featurePackDescription, sourcesDirectory, zipFile, entryTime);
             }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+            reportErrors(errors);
+        }
+    }
+
+    /**
+     * Creates the description of the feature pack, with the versions of the artifacts referenced by its modules and copy
+     * artifacts, checking the modules found in the specified directory against those of the feature pack and its dependencies.
+     *
+     * @param build
+     * @param directory the server or sources directory, with the feature pack's modules
+     * @param artifactResolver
+     * @param artifactFileResolver
+     * @param errors the list where the errors found are added
+     * @param executorService the build's worker pool, null if none
+     * @return the feature pack description
+     * @throws Exception
+     */
+    private static FeaturePackDescription createFeaturePackDescription(FeaturePackBuild build, File directory, ArtifactResolver artifactResolver, ArtifactFileResolver artifactFileResolver, List<String> errors, ExecutorService executorService) throws Exception {
+        final Set<ModuleIdentifier> knownModules = new HashSet<>();
+        final Map<Artifact, String> artifactVersionMap = new HashMap<>();
+        final FeaturePackDescription featurePackDescription = new FeaturePackDescription(build.getDependencies(), build.getConfig(), build.getCopyArtifacts(), build.getFilePermissions());
+        processDependencies(build.getDependencies(), knownModules, new HashSet<String>(), artifactResolver, artifactFileResolver, artifactVersionMap);
+        processModulesDirectory(knownModules, directory, artifactResolver, artifactVersionMap, errors, executorService);
+        processVersions(featurePackDescription, artifactResolver, artifactVersionMap);
+        return featurePackDescription;
+    }
+
+    private static void reportErrors(List<String> errors) {
+        if(!errors.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Some errors were encountered creating the feature pack\n");
+            for(String error : errors) {
+                sb.append(error);
+                sb.append("\n");
+            }
+            throw new RuntimeException(sb.toString());
         }
     }
 
@@ -138,7 +230,7 @@ public class FeaturePackBuilder {
         }
     }
 
-    private static void processModulesDirectory(Set<ModuleIdentifier> packProvidedModules, File serverDirectory, final ArtifactResolver artifactResolver, final Map<Artifact, String> artifactVersionMap,  final List<String> errors) throws IOException {
+    private static void processModulesDirectory(Set<ModuleIdentifier> packProvidedModules, File serverDirectory, final ArtifactResolver artifactResolver, final Map<Artifact, String> artifactVersionMap,  final List<String> errors, ExecutorService executorService) throws Exception {
         final Path modulesDir = Paths.get(new File(serverDirectory, Locations.MODULES).getAbsolutePath());
         if (Files.exists(modulesDir)) {
             final HashSet<ModuleIdentifier> knownModules = new HashSet<>(packProvidedModules);
@@ -195,49 +287,37 @@ public class FeaturePackBuilder {
             knownModules.add(ModuleIdentifier.fromString("java.xml"));
             knownModules.add(ModuleIdentifier.fromString("javafx.fxml"));
             knownModules.add(ModuleIdentifier.fromString("org.jboss.modules"));
-            final Map<ModuleIdentifier, Set<ModuleIdentifier>> requiredDepds = new HashMap<>();
-            Files.walkFileTree(modulesDir, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    if (!file.getFileName().toString().equals("module.xml")) {
-                        return FileVisitResult.CONTINUE;
+            // modules are processed in path order, so that errors are reported in the same order whatever the parallelism
+            final List<ModuleParseResult> results = parseModules(findModuleFiles(modulesDir), executorService);
+            final Map<ModuleIdentifier, Set<ModuleIdentifier>> requiredDepds = new LinkedHashMap<>();
+            for (ModuleParseResult result : results) {
+                knownModules.add(result.getIdentifier());
+                for (ModuleParseResult.ArtifactName artifactName : result.getArtifacts()) {
+
+                    Artifact artifact;
+                    boolean include = true;
+                    if(artifactName.hasVersion()) {
+                        include = false;
+                        artifact = artifactName.getArtifact();
+                    } else {
+                        artifact = artifactResolver.getArtifact(artifactName.getArtifact());
                     }
-                    try {
-                        ModuleParseResult result = ModuleParser.parse(file);
-                        knownModules.add(result.getIdentifier());
-                        for (ModuleParseResult.ArtifactName artifactName : result.getArtifacts()) {
-
-                            Artifact artifact;
-                            boolean include = true;
-                            if(artifactName.hasVersion()) {
-                                include = false;
-                                artifact = artifactName.getArtifact();
-                            } else {
-                                artifact = artifactResolver.getArtifact(artifactName.getArtifact());
-                            }
-                            if(artifact == null) {
-                                errors.add("Could not determine version for artifact " + artifactName);
-                            } else if(include) {
-                                artifactVersionMap.put(artifact.getUnversioned(), artifact.getVersion());
-                            }
-                        }
-                        for(ModuleParseResult.ModuleDependency dep : result.getDependencies()) {
-                            if(!dep.isOptional()) {
-                                Set<ModuleIdentifier> dependees = requiredDepds.get(dep.getModuleId());
-                                if(dependees == null) {
-                                    requiredDepds.put(dep.getModuleId(), dependees = new HashSet<>());
-                                }
-                                dependees.add(result.getIdentifier());
-                            }
+                    if(artifact == null) {
+                        errors.add("Could not determine version for artifact " + artifactName);
+                    } else if(include) {
+                        artifactVersionMap.put(artifact.getUnversioned(), artifact.getVersion());
+                    }
+                }
+                for(ModuleParseResult.ModuleDependency dep : result.getDependencies()) {
+                    if(!dep.isOptional()) {
+                        Set<ModuleIdentifier> dependees = requiredDepds.get(dep.getModuleId());
+                        if(dependees == null) {
+                            requiredDepds.put(dep.getModuleId(), dependees = new LinkedHashSet<>());
                         }
-
-                    } catch (ParsingException e) {
-                        throw new RuntimeException(e);
+                        dependees.add(result.getIdentifier());
                     }
-
-                    return FileVisitResult.CONTINUE;
                 }
-            });
+            }
 
             //now look for unresolved dependencies
             for(Map.Entry<ModuleIdentifier, Set<ModuleIdentifier>> dep : requiredDepds.entrySet()) {
@@ -248,6 +328,41 @@ public class FeaturePackBuilder {
         }
     }
 
+    private static List<Path> findModuleFiles(Path modulesDir) throws IOException {
+        final List<Path> moduleFiles = new ArrayList<>();
+        Files.walkFileTree(modulesDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (file.getFileName().toString().equals("module.xml")) {
+                    moduleFiles.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(moduleFiles);
+        return moduleFiles;
+    }
+
+    /**
+     * Parses the specified module files, concurrently if there is a worker pool.
+     * @param moduleFiles
+     * @param executorService the build's worker pool, null if none
+     * @return the parse results, in module file order
+     * @throws Exception
+     */
+    private static List<ModuleParseResult> parseModules(List<Path> moduleFiles, ExecutorService executorService) throws Exception {
+        final List<Callable<ModuleParseResult>> tasks = new ArrayList<>(moduleFiles.size());
+        for (final Path moduleFile : moduleFiles) {
+            tasks.add(new Callable<ModuleParseResult>() {
+                @Override
+                public ModuleParseResult call() throws Exception {
+                    return ModuleParser.parse(moduleFile);
+                }
+            });
+        }
+        return Tasks.invokeAll(executorService, tasks);
+    }
+
     private static void processVersions(FeaturePackDescription featurePackDescription, ArtifactResolver artifactResolver, Map<Artifact, String> artifactVersionMap) {
         // resolve copy-artifact versions and add to map
         for (CopyArtifact copyArtifact : featurePackDescription.getCopyArtifacts()) {
@@ -263,7 +378,7 @@ public class FeaturePackBuilder {
     }
 
 
-    private static void processContentsDirectory(final FeaturePackBuild build, File serverDirectory) throws IOException {
+    private static void processContentsDirectory(final FeaturePackBuild build, File serverDirectory, ExecutorService executorService) throws Exception {
         final File baseDir = new File(serverDirectory, Locations.CONTENT);
         // make dirs
         for (String dir : build.getMkDirs()) {
@@ -279,23 +394,55 @@ public class FeaturePackBuilder {
         if (!Files.exists(baseDirPath)){
             return;
         }
+        final List<Callable<Boolean>> tasks = new ArrayList<>();
         Files.walkFileTree(baseDirPath, new SimpleFileVisitor<Path>() {
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                String relative = baseDirPath.relativize(file).toString();
-                for (FileFilter fileFilter : build.getUnix()) {
-                    if (fileFilter.matches(relative)) {
-                        toUnixLineEndings(file);
-                    }
-                }
-                for (FileFilter fileFilter : build.getWindows()) {
-                    if (fileFilter.matches(relative)) {
-                        toWindowsLineEndings(file);
-                    }
+                final LineEndings lineEndings = getLineEndings(build, baseDirPath.relativize(file).toString());
+                if (lineEndings != null) {
+                    tasks.add(new LineEndingsTask(file, lineEndings));
                 }
                 return FileVisitResult.CONTINUE;
             }
         });
+        Tasks.invokeAll(executorService, tasks);
+    }
+
+    /**
+     *
+     * @param build
+     * @param relative the content file path, relative to the content directory
+     * @return the line endings the content file should have, null if these should not be converted
+     */
+    private static LineEndings getLineEndings(FeaturePackBuild build, String relative) {
+        // a file matched by both unix and windows filters gets windows line endings
+        for (FileFilter fileFilter : build.getWindows()) {
+            if (fileFilter.matches(relative)) {
+                return LineEndings.WINDOWS;
+            }
+        }
+        for (FileFilter fileFilter : build.getUnix()) {
+            if (fileFilter.matches(relative)) {
+                return LineEndings.UNIX;
+            }
+        }
+        return null;
+    }
+
+    private static class LineEndingsTask implements Callable<Boolean> {
+
+        private final Path file;
+        private final LineEndings lineEndings;
+
+        private LineEndingsTask(Path file, LineEndings lineEndings) {
+            this.file = file;
+            this.lineEndings = lineEndings;
+        }
+
+        @Override
+        public Boolean call() throws IOException {
+            return lineEndings.normalize(file);
+        }
     }
 
     private static void writeFeaturePackXml(FeaturePackDescription featurePackDescription, File serverDirectory) throws IOException, XMLStreamException {
@@ -306,20 +453,69 @@ public class FeaturePackBuilder {
         FeaturePackDescriptionXMLWriter11.INSTANCE.write(featurePackDescription, outputFile);
     }
 
-    private static void toUnixLineEndings(Path file) throws IOException {
-        Pattern pattern = Pattern.compile("\\r\\n", Pattern.MULTILINE);
-        String content = FileUtils.readFile(file.toFile());
-        Matcher matcher = pattern.matcher(content);
-        content = matcher.replaceAll("\n");
-        FileUtils.copyFile(new ByteArrayInputStream(content.getBytes("UTF-8")), file.toFile());
+    private static void writeFeaturePackZip(FeaturePackBuild build, FeaturePackDescription featurePackDescription, File sourcesDirectory, File zipFile, long entryTime) throws IOException, XMLStreamException {
+        final Path sourcesPath = Paths.get(sourcesDirectory.getAbsolutePath());
+        boolean written = false;
+        try (FeaturePackZipWriter zip = new FeaturePackZipWriter(zipFile, entryTime)) {
+            addDirectoryToZip(zip, sourcesPath, Locations.CONTENT, build);
+            for (String dir : build.getMkDirs()) {
+                final String name = dir.replace('\\', '/').replaceAll("^/+|/+$", "");
+                zip.addDirectory(name.isEmpty() ? Locations.CONTENT : Locations.CONTENT + '/' + name, null);
+            }
+            addDirectoryToZip(zip, sourcesPath, Locations.MODULES, null);
+            addDirectoryToZip(zip, sourcesPath, Locations.CONFIGURATION, null);
+            addDirectoryToZip(zip, sourcesPath, Locations.SUBSYSTEM_TEMPLATES, null);
+            zip.addFile(Locations.FEATURE_PACK_DESCRIPTION, featurePackDescription);
+            written = true;
+        } finally {
+            if (!written) {
+                Files.deleteIfExists(zipFile.toPath());
+            }
+        }
     }
 
-    private static void toWindowsLineEndings(Path file) throws IOException {
-        Pattern pattern = Pattern.compile("(?<!\\r)\\n", Pattern.MULTILINE);
-        String content = FileUtils.readFile(file.toFile());
-        Matcher matcher = pattern.matcher(content);
-        content = matcher.replaceAll("\r\n");
-        FileUtils.copyFile(new ByteArrayInputStream(content.getBytes("UTF-8")), file.toFile());
+    /**
+     * Adds a sources directory tree to the zip, sorted by path, so that the zip doesn't depend on the file system's
+     * listing order.
+     * @param zip
+     * @param sourcesPath
+     * @param name
+     * @param build the feature pack build, if the files' line endings should be converted, null otherwise
+     * @throws IOException
+     */
+    private static void addDirectoryToZip(FeaturePackZipWriter zip, final Path sourcesPath, String name, FeaturePackBuild build) throws IOException {
+        final Path directory = sourcesPath.resolve(name);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        final SortedMap<String, Path> entries = new TreeMap<>();
+        final Set<String> directories = new HashSet<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                final String entryName = getEntryName(dir);
+                entries.put(entryName, dir);
+                directories.add(entryName);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                entries.put(getEntryName(file), file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            private String getEntryName(Path path) {
+                return sourcesPath.relativize(path).toString().replace(File.separatorChar, '/');
+            }
+        });
+        for (Map.Entry<String, Path> entry : entries.entrySet()) {
+            if (directories.contains(entry.getKey())) {
+                zip.addDirectory(entry.getKey(), entry.getValue());
+            } else {
+                zip.addFile(entry.getKey(), entry.getValue(), build != null ? getLineEndings(build, directory.relativize(entry.getValue()).toString()) : null);
+            }
+        }
     }
 
     static Logger getLog() {
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.featurepack;
+
+import org.wildfly.build.pack.model.FeaturePackDescription;
+import org.wildfly.build.pack.model.FeaturePackDescriptionXMLWriter11;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a feature pack zip straight from the feature pack sources. The POSIX permissions of the source files and
+ * directories, if any, are stored in ASi Unix extra fields, as read by Info-ZIP's unzip, or by commons-compress through
+ * its AsiExtraField. Unlike with the assembly plugin's archiver, these are not stored in the entries' external
+ * attributes, which java.util.zip can't write, thus tools which only read these don't see the permissions.
+ *
+ * A reproducible zip may be written, where all entries have the same last modified time, and normalized permissions,
+ * i.e. 755 for directories and files executable by their owner, 644 for other files, thus the zip content depends only
+ * on the entries added, and the order these are added.
+ */
+class FeaturePackZipWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int ASI_EXTRA_FIELD_HEADER_ID = 0x756E;
+    private static final int UNIX_FILE_FLAG = 0100000;
+    private static final int UNIX_DIR_FLAG = 040000;
+
+    private final ZipOutputStream zip;
+    private final Set<String> directories = new HashSet<>();
+    private final long entryTime;
+
+    FeaturePackZipWriter(File zipFile) throws IOException {
+        this(zipFile, -1);
+    }
+
+    /**
+     *
+     * @param zipFile
+     * @param entryTime the last modified time of all entries, in milliseconds since the epoch, for a reproducible zip, or -1 to use the source files' times
+     * @throws IOException
+     */
+    FeaturePackZipWriter(File zipFile, long entryTime) throws IOException {
+        // entries store their time in the local time zone, which is undone here, so that the stored time is the same wherever the zip is written
+        this.entryTime = entryTime < 0 ? -1 : entryTime - TimeZone.getDefault().getOffset(entryTime);
+        final File parent = zipFile.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        this.zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(zipFile), BUFFER_SIZE));
+    }
+
+    /**
+     * Adds a directory entry, and entries for its parent directories not yet added.
+     * @param name the directory path in the zip, without trailing slash
+     * @param source the source directory, null if there is none
+     * @throws IOException
+     */
+    void addDirectory(String name, Path source) throws IOException {
+        if (directories.contains(name)) {
+            return;
+        }
+        final int parentEnd = name.lastIndexOf('/');
+        if (parentEnd > 0) {
+            addDirectory(name.substring(0, parentEnd), null);
+        }
+        final ZipEntry entry = new ZipEntry(name + '/');
+        if (entryTime >= 0) {
+            entry.setTime(entryTime);
+            entry.setExtra(asiExtraField(UNIX_DIR_FLAG | 0755));
+        } else if (source != null) {
+            entry.setTime(Files.getLastModifiedTime(source).toMillis());
+            setPermissions(entry, source, UNIX_DIR_FLAG);
+        }
+        zip.putNextEntry(entry);
+        zip.closeEntry();
+        directories.add(name);
+    }
+
+    /**
+     * Adds a file entry.
+     * @param name the file path in the zip
+     * @param source the source file
+     * @param lineEndings the line endings the file content is converted to, null if it's copied as is
+     * @throws IOException
+     */
+    void addFile(String name, Path source, LineEndings lineEndings) throws IOException {
+        addParentDirectory(name);
+        final ZipEntry entry = new ZipEntry(name);
+        if (entryTime >= 0) {
+            entry.setTime(entryTime);
+            entry.setExtra(asiExtraField(UNIX_FILE_FLAG | (isOwnerExecutable(source) ? 0755 : 0644)));
+        } else {
+            entry.setTime(Files.getLastModifiedTime(source).toMillis());
+            setPermissions(entry, source, UNIX_FILE_FLAG);
+        }
+        zip.putNextEntry(entry);
+        if (lineEndings != null) {
+            lineEndings.convert(source, zip);
+        } else {
+            Files.copy(source, zip);
+        }
+        zip.closeEntry();
+    }
+
+    /**
+     * Adds a file entry with the XML of the specified feature pack description.
+     * @param name the file path in the zip
+     * @param featurePackDescription
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    void addFile(String name, FeaturePackDescription featurePackDescription) throws IOException, XMLStreamException {
+        addParentDirectory(name);
+        final ZipEntry entry = new ZipEntry(name);
+        if (entryTime >= 0) {
+            entry.setTime(entryTime);
+            entry.setExtra(asiExtraField(UNIX_FILE_FLAG | 0644));
+        }
+        zip.putNextEntry(entry);
+        FeaturePackDescriptionXMLWriter11.INSTANCE.write(featurePackDescription, zip);
+        zip.closeEntry();
+    }
+
+    private void addParentDirectory(String name) throws IOException {
+        final int parentEnd = name.lastIndexOf('/');
+        if (parentEnd > 0) {
+            addDirectory(name.substring(0, parentEnd), null);
+        }
+    }
+
+    private static void setPermissions(ZipEntry entry, Path source, int typeFlag) throws IOException {
+        final PosixFileAttributeView view = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        if (view == null) {
+            return;
+        }
+        int mode = typeFlag;
+        for (PosixFilePermission permission : view.readAttributes().permissions()) {
+            // the enum constants are ordered from the owner read (0400) to the others execute (0001) permission
+            mode |= 0400 >> permission.ordinal();
+        }
+        entry.setExtra(asiExtraField(mode));
+    }
+
+    private static boolean isOwnerExecutable(Path source) throws IOException {
+        final PosixFileAttributeView view = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        return view != null ? view.readAttributes().permissions().contains(PosixFilePermission.OWNER_EXECUTE) : Files.isExecutable(source);
+    }
+
+    private static byte[] asiExtraField(int mode) {
+        // header id, data size, and then the data: crc, mode, link size, uid and gid
+        final byte[] field = new byte[18];
+        putShort(field, 0, ASI_EXTRA_FIELD_HEADER_ID);
+        putShort(field, 2, 14);
+        putShort(field, 8, mode);
+        final CRC32 crc = new CRC32();
+        crc.update(field, 8, 10);
+        final long value = crc.getValue();
+        putShort(field, 4, (int) value);
+        putShort(field, 6, (int) (value >>> 16));
+        return field;
+    }
+
+    private static void putShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
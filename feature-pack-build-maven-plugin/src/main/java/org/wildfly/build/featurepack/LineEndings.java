@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.featurepack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+/**
+ * The line endings of text files. Files are converted byte by byte, streaming through a fixed size buffer, thus the
+ * content of files in any ASCII compatible encoding, such as UTF-8, is otherwise kept as is, whatever the file size.
+ */
+enum LineEndings {
+
+    /**
+     * lines end with LF, i.e. each CR LF is replaced by LF
+     */
+    UNIX,
+    /**
+     * lines end with CR LF, i.e. each LF not preceded by CR is replaced by CR LF
+     */
+    WINDOWS;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * Converts the line endings of the specified file, unless these are already normalized. The file's POSIX
+     * permissions, if any, are kept.
+     * @param file
+     * @return true if the file was rewritten, false if its line endings were already normalized
+     * @throws IOException
+     */
+    boolean normalize(Path file) throws IOException {
+        return normalize(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    boolean normalize(Path file, int bufferSize) throws IOException {
+        final ByteBuffer in = ByteBuffer.allocate(bufferSize);
+        if (isNormalized(file, in)) {
+            return false;
+        }
+        in.clear();
+        // the converted file is written next to the original, and then replaces it
+        final Path tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            convert(file, tmpFile, in);
+            // the temp file is only readable by its owner, the original's permissions are kept
+            final PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+            if (view != null) {
+                Files.setPosixFilePermissions(tmpFile, view.readAttributes().permissions());
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+        return true;
+    }
+
+    private boolean isNormalized(Path file, ByteBuffer buffer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean cr = false;
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    final byte b = buffer.get();
+                    if (b == LF && cr == (this == UNIX)) {
+                        return false;
+                    }
+                    cr = b == CR;
+                }
+                buffer.clear();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the specified file to the specified stream, converting its line endings. The stream is not closed.
+     * @param file
+     * @param out
+     * @throws IOException
+     */
+    void convert(Path file, OutputStream out) throws IOException {
+        try (FileChannel sourceChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            convert(sourceChannel, Channels.newChannel(out), ByteBuffer.allocate(DEFAULT_BUFFER_SIZE));
+        }
+    }
+
+    private void convert(Path source, Path target, ByteBuffer in) throws IOException {
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            convert(sourceChannel, targetChannel, in);
+        }
+    }
+
+    private void convert(ReadableByteChannel sourceChannel, WritableByteChannel targetChannel, ByteBuffer in) throws IOException {
+        // each byte read may be written as two bytes
+        final ByteBuffer out = ByteBuffer.allocate(in.capacity() * 2);
+        // on unix conversion a CR is held back until the next byte is known, on windows conversion it's just remembered
+        boolean cr = false;
+        while (sourceChannel.read(in) != -1) {
+            in.flip();
+            while (in.hasRemaining()) {
+                final byte b = in.get();
+                if (this == UNIX) {
+                    if (cr && b != LF) {
+                        out.put(CR);
+                    }
+                    if (b != CR) {
+                        out.put(b);
+                    }
+                } else {
+                    if (b == LF && !cr) {
+                        out.put(CR);
+                    }
+                    out.put(b);
+                }
+                cr = b == CR;
+            }
+            in.clear();
+            write(out, targetChannel);
+        }
+        if (cr && this == UNIX) {
+            out.put(CR);
+            write(out, targetChannel);
+        }
+    }
+
+    private static void write(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
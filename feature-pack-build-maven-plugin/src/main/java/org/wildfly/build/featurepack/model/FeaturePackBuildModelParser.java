@@ -18,11 +18,11 @@ package org.wildfly.build.featurepack.model;
 
 import java.io.InputStream;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import org.jboss.staxmapper.XMLMapper;
 import org.wildfly.build.util.PropertyResolver;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
 /**
  * @author Stuart Douglas
@@ -32,8 +32,6 @@ public class FeaturePackBuildModelParser {
     private static final QName ROOT_1_0 = new QName(FeaturePackBuildModelParser10.NAMESPACE_1_0, FeaturePackBuildModelParser10.Element.BUILD.getLocalName());
     private static final QName ROOT_1_1 = new QName(FeaturePackBuildModelParser11.NAMESPACE_1_1, FeaturePackBuildModelParser10.Element.BUILD.getLocalName());
 
-    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
-
     private final XMLMapper mapper;
 
     public FeaturePackBuildModelParser(PropertyResolver properties) {
@@ -44,19 +42,10 @@ public class FeaturePackBuildModelParser {
 
     public FeaturePackBuild parse(final InputStream input) throws XMLStreamException {
 
-        final XMLInputFactory inputFactory = INPUT_FACTORY;
-        setIfSupported(inputFactory, XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
-        setIfSupported(inputFactory, XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
-        final XMLStreamReader streamReader = inputFactory.createXMLStreamReader(input);
+        final XMLStreamReader streamReader = XMLStreamFactories.createDescriptionReader(input);
         FeaturePackBuild build = new FeaturePackBuild();
         mapper.parseDocument(build, streamReader);
         return build;
     }
 
-    private void setIfSupported(final XMLInputFactory inputFactory, final String property, final Object value) {
-        if (inputFactory.isPropertySupported(property)) {
-            inputFactory.setProperty(property, value);
-        }
-    }
-
 }
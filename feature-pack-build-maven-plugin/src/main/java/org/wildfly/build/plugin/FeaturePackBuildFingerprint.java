@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.plugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The fingerprint of a feature pack build's inputs, a SHA-1 digest of named values, such as the build config, the
+ * checksums of the dependency feature packs, or the size and last modified time of each resource file. A build
+ * whose fingerprint matches the one stored by the previous build, with that build's output still in place, may be
+ * skipped.
+ *
+ * This class is not thread safe.
+ */
+class FeaturePackBuildFingerprint {
+
+    private final MessageDigest digest;
+
+    FeaturePackBuildFingerprint() {
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds a named value.
+     * @param name
+     * @param value
+     */
+    void add(String name, String value) {
+        digest.update(name.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    /**
+     * Adds the entries of a map, sorted by key.
+     * @param name
+     * @param map
+     */
+    void add(String name, Map<?, ?> map) {
+        final SortedMap<String, String> sortedMap = new TreeMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            sortedMap.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+        }
+        for (Map.Entry<String, String> entry : sortedMap.entrySet()) {
+            add(name + '/' + entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Adds the checksum of a file's content.
+     * @param name
+     * @param file
+     * @throws IOException
+     */
+    void addFileChecksum(String name, File file) throws IOException {
+        final MessageDigest fileDigest;
+        try {
+            fileDigest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[65536];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                fileDigest.update(buffer, 0, read);
+            }
+        }
+        add(name, toHex(fileDigest.digest()));
+    }
+
+    /**
+     * Adds the path, size, last modified time and POSIX permissions of each file in a directory tree, if the directory
+     * exists.
+     * @param name
+     * @param directory
+     * @throws IOException
+     */
+    void addDirectory(String name, final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            add(name, "missing");
+            return;
+        }
+        // sorted so that the fingerprint doesn't depend on the file system's listing order
+        final SortedMap<String, String> files = new TreeMap<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                files.put(directory.relativize(dir).toString(), "dir");
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String value = attrs.size() + ":" + attrs.lastModifiedTime().toMillis();
+                // the permissions are packaged too, e.g. a script made executable must trigger a rebuild
+                final PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+                if (view != null) {
+                    value += ":" + PosixFilePermissions.toString(view.readAttributes().permissions());
+                }
+                files.put(directory.relativize(file).toString(), value);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (Map.Entry<String, String> entry : files.entrySet()) {
+            add(name + '/' + entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     *
+     * @return the fingerprint, as a lowercase hex string
+     */
+    String getValue() {
+        return toHex(digest.digest());
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Loads the fingerprint stored by the previous build.
+     * @param file
+     * @return the fingerprint, null if there is none
+     * @throws IOException
+     */
+    static String load(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return reader.readLine();
+        }
+    }
+
+    /**
+     * Stores the fingerprint of a completed build.
+     * @param file
+     * @param value
+     * @throws IOException
+     */
+    static void store(File file, String value) throws IOException {
+        Files.write(file.toPath(), (value + '\n').getBytes(StandardCharsets.UTF_8));
+    }
+}
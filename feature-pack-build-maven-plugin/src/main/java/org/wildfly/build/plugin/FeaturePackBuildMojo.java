@@ -33,22 +33,31 @@ import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.wildfly.build.AetherArtifactFileResolver;
+import org.wildfly.build.ArtifactFileResolver;
 import org.wildfly.build.Locations;
 import org.wildfly.build.featurepack.FeaturePackBuilder;
 import org.wildfly.build.featurepack.model.FeaturePackBuild;
 import org.wildfly.build.featurepack.model.FeaturePackBuildModelParser;
+import org.wildfly.build.pack.model.Artifact;
+import org.wildfly.build.util.BuildPropertyReplacer;
 import org.wildfly.build.util.FileUtils;
 import org.wildfly.build.util.MapPropertyResolver;
+import org.wildfly.build.util.ZipFileCache;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -65,6 +74,7 @@ import java.util.Properties;
 @Mojo(name = "build", requiresDependencyResolution = ResolutionScope.RUNTIME, defaultPhase = LifecyclePhase.COMPILE)
 public class FeaturePackBuildMojo extends AbstractMojo {
     private static final boolean OS_WINDOWS = System.getProperty("os.name").contains("indows");
+    private static final String FINGERPRINT_FILE_SUFFIX = ".fingerprint";
 
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     protected MavenProject project;
@@ -107,6 +117,43 @@ public class FeaturePackBuildMojo extends AbstractMojo {
     @Parameter
     private List<Resource> resources;
 
+    /**
+     * The number of worker threads used to parse the server's module.xml files, and to convert the line endings of its content files. The default of 1 processes them serially.
+     */
+    @Parameter(alias = "parallelism", defaultValue = "1", property = "wildfly.feature.pack.parallelism")
+    private Integer parallelism = 1;
+
+    /**
+     * Whether the feature pack build is skipped when its inputs did not change since the previous build, i.e. the
+     * build config, after property replacement, the resources, the dependency feature packs and the project's
+     * artifact versions, and its output is still in place.
+     */
+    @Parameter(alias = "incremental", defaultValue = "false", property = "wildfly.feature.pack.incremental")
+    private Boolean incremental = false;
+
+    /**
+     * If true the feature pack zip is written straight from the resources directory, instead of copying the feature pack
+     * to the server directory, for the assembly plugin to zip it. The server directory is then not created, and
+     * additional {@link #resources} are not supported.
+     */
+    @Parameter(alias = "direct-packaging", defaultValue = "false", property = "wildfly.feature.pack.directPackaging")
+    private boolean directPackaging;
+
+    /**
+     * The feature pack zip written by direct packaging.
+     */
+    @Parameter(alias = "zip-file", defaultValue = "${project.build.directory}/${project.build.finalName}.zip", property = "wildfly.feature.pack.zipFile")
+    private File zipFile;
+
+    /**
+     * The timestamp of reproducible output, i.e. if set the zip written by direct packaging has this last modified time
+     * in all entries, and normalized permissions, so that building the same sources produces the same zip. Either
+     * seconds since the epoch, or an ISO-8601 date time with offset, such as 2014-10-01T00:00:00Z, the same as the
+     * project.build.outputTimestamp property used by the Maven archivers.
+     */
+    @Parameter(defaultValue = "${project.build.outputTimestamp}", property = "project.build.outputTimestamp")
+    private String outputTimestamp;
+
     /**
      * The entry point to Aether, i.e. the component doing all the work.
      */
@@ -145,18 +192,55 @@ public class FeaturePackBuildMojo extends AbstractMojo {
             }
         }
 
-        copyContents();
+        if (directPackaging && resources != null && !resources.isEmpty()) {
+            throw new MojoExecutionException("Additional resources are not supported by direct packaging");
+        }
+        final long entryTime = getOutputTime();
+        final Properties properties = new Properties();
+        properties.putAll(project.getProperties());
+        properties.putAll(System.getProperties());
+        properties.put("project.version", project.getVersion()); //TODO: figure out the correct way to do this
+        final FeaturePackBuild build;
         try (FileInputStream configStream = new FileInputStream(new File(configDir, configFile))) {
-            Properties properties = new Properties();
-            properties.putAll(project.getProperties());
-            properties.putAll(System.getProperties());
-            properties.put("project.version", project.getVersion()); //TODO: figure out the correct way to do this
-            final FeaturePackBuild build = new FeaturePackBuildModelParser(new MapPropertyResolver(properties)).parse(configStream);
-            File target = new File(buildName, serverName);
-            FeaturePackBuilder.build(build, target, new MavenProjectArtifactResolver(project), new AetherArtifactFileResolver(repoSystem, repoSession, remoteRepos));
+            build = new FeaturePackBuildModelParser(new MapPropertyResolver(properties)).parse(configStream);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        final MavenProjectArtifactResolver artifactResolver = new MavenProjectArtifactResolver(project);
+        final ArtifactFileResolver artifactFileResolver = new AetherArtifactFileResolver(repoSystem, repoSession, remoteRepos);
+        final File fingerprintFile = directPackaging ? new File(zipFile.getAbsolutePath() + FINGERPRINT_FILE_SUFFIX) : new File(buildName, serverName + FINGERPRINT_FILE_SUFFIX);
+        String fingerprint = null;
+        try {
+            if (incremental) {
+                fingerprint = getFingerprint(build, properties, artifactResolver, artifactFileResolver, entryTime);
+                final File output = directPackaging ? zipFile : new File(new File(buildName, serverName), Locations.FEATURE_PACK_DESCRIPTION);
+                if (fingerprint != null && output.isFile() && fingerprint.equals(FeaturePackBuildFingerprint.load(fingerprintFile))) {
+                    getLog().info("Feature pack inputs did not change, skipping build of " + (directPackaging ? zipFile : new File(buildName, serverName)));
+                    return;
+                }
+            }
+            // the fingerprint is only valid once this build completes
+            Files.deleteIfExists(fingerprintFile.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (!directPackaging) {
+            copyContents();
+        }
+        try {
+            if (directPackaging) {
+                FeaturePackBuilder.buildZip(build, getResourcesPath().toFile(), zipFile, artifactResolver, artifactFileResolver, parallelism, entryTime);
+            } else {
+                File target = new File(buildName, serverName);
+                FeaturePackBuilder.build(build, target, artifactResolver, artifactFileResolver, parallelism);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            // close the archives opened while building
+            ZipFileCache.getInstance().clear();
+        }
 
         // Process additional resources
         if (resources != null) {
@@ -167,6 +251,96 @@ public class FeaturePackBuildMojo extends AbstractMojo {
                 throw new MojoExecutionException("Failed to process resources.", e);
             }
         }
+
+        if (fingerprint != null) {
+            try {
+                FeaturePackBuildFingerprint.store(fingerprintFile, fingerprint);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Parses the {@link #outputTimestamp}, the same way the Maven archivers do, i.e. a single character, such as the
+     * default of a parent pom which leaves it unset, disables reproducible output.
+     * @return the output time in milliseconds since the epoch, -1 if reproducible output is disabled
+     * @throws MojoExecutionException
+     */
+    private long getOutputTime() throws MojoExecutionException {
+        if (outputTimestamp == null || outputTimestamp.length() < 2) {
+            return -1;
+        }
+        try {
+            if (outputTimestamp.matches("\\d+")) {
+                return Long.parseLong(outputTimestamp) * 1000;
+            }
+            return OffsetDateTime.parse(outputTimestamp).toInstant().toEpochMilli();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new MojoExecutionException("Invalid project.build.outputTimestamp " + outputTimestamp, e);
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the build inputs.
+     * @return the fingerprint, null if a dependency feature pack can't be resolved, the build then reports the failure
+     * @throws IOException
+     */
+    private String getFingerprint(FeaturePackBuild build, Properties properties, MavenProjectArtifactResolver artifactResolver, ArtifactFileResolver artifactFileResolver, long entryTime) throws IOException {
+        final FeaturePackBuildFingerprint fingerprint = new FeaturePackBuildFingerprint();
+        // the plugin itself
+        final URL pluginLocation = FeaturePackBuildMojo.class.getProtectionDomain().getCodeSource().getLocation();
+        try {
+            // the URL path is encoded, e.g. if the local repository path has spaces
+            fingerprint.add("plugin", pluginLocation + ":" + Paths.get(pluginLocation.toURI()).toFile().lastModified());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid plugin location " + pluginLocation, e);
+        }
+        fingerprint.add("directPackaging", String.valueOf(directPackaging));
+        fingerprint.add("entryTime", String.valueOf(entryTime));
+        // the build config, after property replacement
+        final String config = new String(Files.readAllBytes(new File(configDir, configFile).toPath()), StandardCharsets.UTF_8);
+        boolean addProperties = false;
+        try {
+            fingerprint.add("config", new BuildPropertyReplacer(new MapPropertyResolver(properties)).replaceProperties(config));
+        } catch (IllegalStateException e) {
+            // an expression the config parser ignores, e.g. in a comment, can't be resolved
+            fingerprint.add("config", config);
+            addProperties = true;
+        }
+        // the resources
+        final Path resourcesPath = getResourcesPath();
+        fingerprint.addDirectory(Locations.CONTENT, resourcesPath.resolve(Locations.CONTENT));
+        fingerprint.addDirectory(Locations.MODULES, resourcesPath.resolve(Locations.MODULES));
+        fingerprint.addDirectory(Locations.CONFIGURATION, resourcesPath.resolve(Locations.CONFIGURATION));
+        fingerprint.addDirectory(Locations.SUBSYSTEM_TEMPLATES, resourcesPath.resolve(Locations.SUBSYSTEM_TEMPLATES));
+        if (resources != null) {
+            for (Resource resource : resources) {
+                fingerprint.add("resource", resource.getDirectory() + ":" + resource.getTargetPath() + ":" + resource.getIncludes() + ":" + resource.getExcludes() + ":" + resource.isFiltering() + ":" + resource.isOverwrite());
+                fingerprint.addDirectory("resource", project.getBasedir().toPath().resolve(resource.getDirectory()));
+                if (resource.isFiltering()) {
+                    addProperties = true;
+                }
+            }
+        }
+        if (addProperties) {
+            fingerprint.add("properties", properties);
+        }
+        // the dependency feature packs
+        for (String dependency : build.getDependencies()) {
+            Artifact artifact = Artifact.parse(dependency);
+            if (artifact.getPackaging() == null) {
+                artifact = new Artifact(artifact.getGroupId(), artifact.getArtifactId(), "zip", artifact.getClassifier(), artifact.getVersion());
+            }
+            final Artifact dependencyArtifact = artifactResolver.getArtifact(artifact);
+            if (dependencyArtifact == null) {
+                return null;
+            }
+            fingerprint.addFileChecksum(dependency, artifactFileResolver.getArtifactFile(dependencyArtifact));
+        }
+        // the artifact versions
+        fingerprint.add("artifacts", artifactResolver.getArtifacts());
+        return fingerprint.getValue();
     }
 
     /**
@@ -179,7 +353,7 @@ public class FeaturePackBuildMojo extends AbstractMojo {
 
             final Path path = Paths.get(baseDir.getAbsolutePath());
 
-            final Path baseFile = Paths.get(configDir.getAbsolutePath() + resourcesDir);
+            final Path baseFile = getResourcesPath();
             doCopy(path.resolve(Locations.CONTENT), baseFile.resolve(Locations.CONTENT));
             doCopy(path.resolve(Locations.MODULES), baseFile.resolve(Locations.MODULES));
             doCopy(path.resolve(Locations.CONFIGURATION), baseFile.resolve(Locations.CONFIGURATION));
@@ -190,6 +364,10 @@ public class FeaturePackBuildMojo extends AbstractMojo {
         }
     }
 
+    private Path getResourcesPath() {
+        return Paths.get(configDir.getAbsolutePath() + resourcesDir);
+    }
+
     private void doCopy(final Path target, final Path source) throws IOException {
         Files.walkFileTree(source, new FileVisitor<Path>() {
 
@@ -22,6 +22,7 @@ import org.jboss.logging.Logger;
 import org.wildfly.build.ArtifactResolver;
 import org.wildfly.build.pack.model.Artifact;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -54,4 +55,12 @@ public class MavenProjectArtifactResolver implements ArtifactResolver {
         return artifactMap.get(GACE.toString());
     }
 
+    /**
+     * Retrieves the artifacts which this resolver resolves.
+     * @return the artifacts, mapped by their unversioned coordinates
+     */
+    public Map<String, Artifact> getArtifacts() {
+        return Collections.unmodifiableMap(artifactMap);
+    }
+
 }
@@ -0,0 +1,126 @@
+package org.wildfly.build.featurepack;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.build.ArtifactResolver;
+import org.wildfly.build.common.model.ConfigFile;
+import org.wildfly.build.common.model.FileFilter;
+import org.wildfly.build.featurepack.model.FeaturePackBuild;
+import org.wildfly.build.pack.model.Artifact;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FeaturePackBuilderTestCase {
+
+    private static final long ENTRY_TIME = 1412121600000L;
+
+    private static final String[][] SOURCES = {
+            {"modules/system/layers/base/org/test/main/module.xml", "<module xmlns=\"urn:jboss:module:1.3\" name=\"org.test\">\n" +
+                    "    <resources>\n" +
+                    "        <artifact name=\"${org.test:lib}\"/>\n" +
+                    "    </resources>\n" +
+                    "    <dependencies>\n" +
+                    "        <module name=\"java.base\"/>\n" +
+                    "    </dependencies>\n" +
+                    "</module>\n"},
+            {"modules/system/layers/base/org/test/other/main/module.xml", "<module xmlns=\"urn:jboss:module:1.3\" name=\"org.test.other\">\n" +
+                    "    <dependencies>\n" +
+                    "        <module name=\"org.test\"/>\n" +
+                    "    </dependencies>\n" +
+                    "</module>\n"},
+            {"content/bin/run.sh", "#!/bin/sh\r\necho run\r\n"},
+            {"content/bin/run.bat", "@echo off\necho run\n"},
+            {"content/docs/README.txt", "readme\n"},
+            {"configuration/standalone/template.xml", "<server/>\n"},
+            {"configuration/standalone/subsystems.xml", "<config/>\n"},
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReproducibleZip() throws Exception {
+        final File first = folder.newFolder("first");
+        final File second = folder.newFolder("second", "nested");
+        // the second sources are created in reverse order, with other last modified times, and config properties
+        writeSources(first, Arrays.asList(SOURCES), 0);
+        final List<String[]> reversed = Arrays.asList(SOURCES.clone());
+        Collections.reverse(reversed);
+        writeSources(second, reversed, 86400000L);
+        final boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (posix) {
+            // permissions which only differ in bits not kept by the normalization
+            setPermissions(first, "content/bin/run.sh", "rwxr-xr-x");
+            setPermissions(second, "content/bin/run.sh", "rwx------");
+            setPermissions(first, "content/docs/README.txt", "rw-r--r--");
+            setPermissions(second, "content/docs/README.txt", "rw-rw----");
+        }
+        final File firstZip = new File(first, "feature-pack.zip");
+        final File secondZip = new File(second, "feature-pack.zip");
+        FeaturePackBuilder.buildZip(createBuild(false), first, firstZip, new TestArtifactResolver(), null, 1, ENTRY_TIME);
+        FeaturePackBuilder.buildZip(createBuild(true), second, secondZip, new TestArtifactResolver(), null, 2, ENTRY_TIME);
+        assertTrue(firstZip.isFile());
+        assertArrayEquals(checksum(firstZip), checksum(secondZip));
+        if (posix) {
+            // while the owner's execute permission is kept
+            setPermissions(first, "content/bin/run.sh", "rw-r--r--");
+            FeaturePackBuilder.buildZip(createBuild(false), first, firstZip, new TestArtifactResolver(), null, 1, ENTRY_TIME);
+            assertFalse(Arrays.equals(checksum(firstZip), checksum(secondZip)));
+        }
+    }
+
+    private static void setPermissions(File directory, String source, String permissions) throws Exception {
+        Files.setPosixFilePermissions(directory.toPath().resolve(source), PosixFilePermissions.fromString(permissions));
+    }
+
+    private static void writeSources(File directory, List<String[]> sources, long timeOffset) throws Exception {
+        for (String[] source : sources) {
+            final Path file = directory.toPath().resolve(source[0]);
+            Files.createDirectories(file.getParent());
+            Files.write(file, source[1].getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - timeOffset));
+        }
+    }
+
+    private static FeaturePackBuild createBuild(boolean reverseProperties) {
+        final FeaturePackBuild build = new FeaturePackBuild();
+        final Map<String, String> properties = new LinkedHashMap<>();
+        final String[] names = reverseProperties ? new String[] {"c", "b", "a"} : new String[] {"a", "b", "c"};
+        for (String name : names) {
+            properties.put(name, name + "-value");
+        }
+        build.getConfig().getStandaloneConfigFiles().add(new ConfigFile(properties, "configuration/standalone/template.xml", "configuration/standalone/subsystems.xml", "standalone/configuration/standalone.xml"));
+        build.getMkDirs().add("standalone/tmp");
+        build.getUnix().add(new FileFilter("bin/*.sh", true));
+        build.getWindows().add(new FileFilter("bin/*.bat", true));
+        return build;
+    }
+
+    private static byte[] checksum(File file) throws Exception {
+        return MessageDigest.getInstance("SHA-1").digest(Files.readAllBytes(file.toPath()));
+    }
+
+    private static class TestArtifactResolver implements ArtifactResolver {
+        @Override
+        public Artifact getArtifact(Artifact unversioned) {
+            return new Artifact(unversioned.getGroupId(), unversioned.getArtifactId(), unversioned.getPackaging(), unversioned.getClassifier(), "1.0");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.wildfly.build.featurepack;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LineEndingsTestCase {
+
+    private static final String TEXT = "\r\nfirst\nsecond\r\nthird\r\r\nfourth\rfifth \u00e9\u20ac\n\nlast\r";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testUnix() throws Exception {
+        // small buffers so that line endings and multi byte characters span buffer boundaries
+        for (int bufferSize = 1; bufferSize < 5; bufferSize++) {
+            final Path file = write(TEXT);
+            assertTrue(LineEndings.UNIX.normalize(file, bufferSize));
+            assertEquals(TEXT.replaceAll("\\r\\n", "\n"), read(file));
+        }
+    }
+
+    @Test
+    public void testWindows() throws Exception {
+        for (int bufferSize = 1; bufferSize < 5; bufferSize++) {
+            final Path file = write(TEXT);
+            assertTrue(LineEndings.WINDOWS.normalize(file, bufferSize));
+            assertEquals(TEXT.replaceAll("(?<!\\r)\\n", "\r\n"), read(file));
+        }
+    }
+
+    @Test
+    public void testNormalizedFileNotRewritten() throws Exception {
+        final Path unixFile = write("first\nsecond\rthird\n");
+        final long unixLastModified = Files.getLastModifiedTime(unixFile).toMillis();
+        assertFalse(LineEndings.UNIX.normalize(unixFile, 2));
+        assertEquals(unixLastModified, Files.getLastModifiedTime(unixFile).toMillis());
+        final Path windowsFile = write("first\r\nsecond\rthird\r\n");
+        assertFalse(LineEndings.WINDOWS.normalize(windowsFile, 2));
+        assertArrayEquals("first\r\nsecond\rthird\r\n".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(windowsFile));
+    }
+
+    @Test
+    public void testPermissionsKept() throws Exception {
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        for (String permissions : new String[] {"rwxr-xr-x", "rw-r--r--"}) {
+            final Path file = write(TEXT);
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString(permissions));
+            assertTrue(LineEndings.UNIX.normalize(file));
+            assertEquals(permissions, PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        }
+    }
+
+    private Path write(String text) throws Exception {
+        final Path file = folder.newFile().toPath();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
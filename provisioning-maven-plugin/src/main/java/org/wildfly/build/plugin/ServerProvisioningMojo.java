@@ -52,6 +52,12 @@ import java.util.Properties;
 @Mojo(name = "build", requiresDependencyResolution = ResolutionScope.RUNTIME, defaultPhase = LifecyclePhase.COMPILE)
 public class ServerProvisioningMojo extends AbstractMojo {
 
+    private static final String ARTIFACT_STORE_DIR_NAME = ".wildfly-artifact-store";
+
+    private static final String SUBSYSTEM_TEMPLATE_INDEX_FILE_NAME = ".wildfly-subsystem-template-index";
+
+    private static final String JANDEX_CACHE_DIR_NAME = ".wildfly-jandex-cache";
+
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     protected MavenProject project;
 
@@ -107,6 +113,39 @@ public class ServerProvisioningMojo extends AbstractMojo {
     @Parameter(alias = "overlay", defaultValue = "false")
     private Boolean overlay = false;
 
+    /**
+     * The number of worker threads used to load the feature packs, to provision the server modules, and to assemble its configs. The default of 1 provisions them serially.
+     */
+    @Parameter(alias = "parallelism", defaultValue = "1", property = "wildfly.provision.parallelism")
+    private Integer parallelism = 1;
+
+    /**
+     * Whether the server should be re-provisioned incrementally, i.e. only the files whose source changed since the
+     * previous build are written, and the files no longer provisioned are removed.
+     */
+    @Parameter(alias = "incremental", defaultValue = "false", property = "wildfly.provision.incremental")
+    private Boolean incremental = false;
+
+    /**
+     * How artifacts are materialized in the server, one of copy, hard-link, symlink or reflink. If set it overrides
+     * the provisioning config file's artifact-materialization.
+     */
+    @Parameter(alias = "artifact-materialization", property = "wildfly.provision.artifactMaterialization")
+    private String artifactMaterialization;
+
+    /**
+     * The content addressed store used to link artifacts, if those are not copied. Defaults to a directory in the local repository.
+     */
+    @Parameter(alias = "artifact-store", property = "wildfly.provision.artifactStore")
+    private File artifactStore;
+
+    /**
+     * Whether the subsystem templates of module artifacts are indexed in a file in the local repository, so that
+     * later builds don't search the same artifacts again. If false every module artifact is searched.
+     */
+    @Parameter(alias = "subsystem-template-index", defaultValue = "true", property = "wildfly.provision.subsystemTemplateIndex")
+    private Boolean subsystemTemplateIndex = true;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         try (FileInputStream configStream = new FileInputStream(new File(configDir, configFile))) {
@@ -122,6 +161,12 @@ public class ServerProvisioningMojo extends AbstractMojo {
             properties.put("project.packaging", project.getPackaging());
 
             final ServerProvisioningDescription serverProvisioningDescription = new ServerProvisioningDescriptionModelParser(new MapPropertyResolver(properties)).parse(configStream);
+            if (artifactMaterialization != null) {
+                serverProvisioningDescription.setArtifactMaterialization(artifactMaterialization);
+            }
+            final File artifactStoreDirectory = artifactStore != null ? artifactStore : new File(repoSession.getLocalRepository().getBasedir(), ARTIFACT_STORE_DIR_NAME);
+            final File subsystemTemplateIndexFile = subsystemTemplateIndex ? new File(repoSession.getLocalRepository().getBasedir(), SUBSYSTEM_TEMPLATE_INDEX_FILE_NAME) : null;
+            final File jandexCacheDirectory = new File(repoSession.getLocalRepository().getBasedir(), JANDEX_CACHE_DIR_NAME);
             AetherArtifactFileResolver aetherArtifactFileResolver = new AetherArtifactFileResolver(repoSystem, repoSession, remoteRepos);
             ArtifactResolver overrideArtifactResolver = new FeaturePackArtifactResolver(serverProvisioningDescription.getVersionOverrides());
             if(allowMavenVersionOverrides) {
@@ -132,7 +177,7 @@ public class ServerProvisioningMojo extends AbstractMojo {
             }
 
 
-            ServerProvisioner.build(serverProvisioningDescription, new File(buildName, serverName), overlay, aetherArtifactFileResolver, overrideArtifactResolver);
+            ServerProvisioner.build(serverProvisioningDescription, new File(buildName, serverName), overlay, aetherArtifactFileResolver, overrideArtifactResolver, parallelism, incremental, artifactStoreDirectory, subsystemTemplateIndexFile, jandexCacheDirectory);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
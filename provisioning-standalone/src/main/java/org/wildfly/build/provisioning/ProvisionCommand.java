@@ -50,18 +50,32 @@ public class ProvisionCommand {
         buildDir.mkdirs();
         // create the standalone aether artifact file resolver, reuse maven local repo if found at standard location
         final File mavenLocalRepositoryBaseDir = new File(new File(System.getProperty("user.home"), ".m2"), "repository");
-        final AetherArtifactFileResolver aetherArtifactFileResolver = new StandaloneAetherArtifactFileResolver(mavenLocalRepositoryBaseDir.exists() ? mavenLocalRepositoryBaseDir : (new File(buildDir, "repository")));
+        final File localRepositoryBaseDir = mavenLocalRepositoryBaseDir.exists() ? mavenLocalRepositoryBaseDir : (new File(buildDir, "repository"));
+        final AetherArtifactFileResolver aetherArtifactFileResolver = new StandaloneAetherArtifactFileResolver(localRepositoryBaseDir);
         try (FileInputStream configStream = new FileInputStream(configFile)) {
             // parse description
             final ServerProvisioningDescription serverProvisioningDescription = new ServerProvisioningDescriptionModelParser(new MapPropertyResolver(environment)).parse(configStream);
+            // artifact materialization override, and the store used to link artifacts
+            if (environment.getProperty("artifact-materialization") != null) {
+                serverProvisioningDescription.setArtifactMaterialization(environment.getProperty("artifact-materialization"));
+            }
+            final File artifactStoreDir = new File(environment.getProperty("artifact-store", new File(localRepositoryBaseDir, ".wildfly-artifact-store").getPath()));
+            // which artifacts contain subsystem templates, persisted between runs, unless disabled
+            final File subsystemTemplateIndexFile = Boolean.valueOf(environment.getProperty("subsystem-template-index", "true")) ? new File(localRepositoryBaseDir, ".wildfly-subsystem-template-index") : null;
+            // jandex indexes of module artifacts, reused between runs
+            final File jandexCacheDir = new File(localRepositoryBaseDir, ".wildfly-jandex-cache");
             // create version override artifact resolver
             ArtifactResolver overrideArtifactResolver = new FeaturePackArtifactResolver(serverProvisioningDescription.getVersionOverrides());
             if(Boolean.valueOf(environment.getProperty("system-property-version-overrides", "false"))) {
                 overrideArtifactResolver = new DelegatingArtifactResolver(new PropertiesBasedArtifactResolver(environment), overrideArtifactResolver);
             }
+            // number of worker threads used to load feature packs, provision modules and assemble configs
+            final int parallelism = Integer.parseInt(environment.getProperty("parallelism", "1"));
+            // re-provision over the server built by a previous run
+            final boolean incremental = Boolean.valueOf(environment.getProperty("incremental", "false"));
             // provision the server
             final File outputDir = new File(buildDir, "wildfly");
-            ServerProvisioner.build(serverProvisioningDescription, outputDir, false, aetherArtifactFileResolver, overrideArtifactResolver);
+            ServerProvisioner.build(serverProvisioningDescription, outputDir, false, aetherArtifactFileResolver, overrideArtifactResolver, parallelism, incremental, artifactStoreDir, subsystemTemplateIndexFile, jandexCacheDir);
             System.out.print("Server provisioning at "+outputDir+" complete.");
         } catch (Exception e) {
             throw new RuntimeException(e);
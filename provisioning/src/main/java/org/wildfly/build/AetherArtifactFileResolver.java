@@ -26,7 +26,11 @@ import org.eclipse.aether.resolution.ArtifactResolutionException;
 import org.eclipse.aether.resolution.ArtifactResult;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Eduardo Martins
@@ -36,6 +40,7 @@ public class AetherArtifactFileResolver implements ArtifactFileResolver {
     private final RepositorySystem repoSystem;
     private final RepositorySystemSession repoSession;
     private final List<RemoteRepository> remoteRepos;
+    private final Map<String, File> prefetchedFiles = new ConcurrentHashMap<>();
 
     public AetherArtifactFileResolver(RepositorySystem repoSystem, RepositorySystemSession repoSession, List<RemoteRepository> remoteRepos) {
         this.repoSystem = repoSystem;
@@ -44,6 +49,10 @@ public class AetherArtifactFileResolver implements ArtifactFileResolver {
     }
 
     private File getArtifactFile(Artifact artifact) {
+        final File prefetchedFile = prefetchedFiles.get(artifact.toString());
+        if (prefetchedFile != null) {
+            return prefetchedFile;
+        }
         ArtifactRequest request = new ArtifactRequest();
         request.setArtifact(artifact);
         request.setRepositories(remoteRepos);
@@ -58,10 +67,41 @@ public class AetherArtifactFileResolver implements ArtifactFileResolver {
 
     @Override
     public File getArtifactFile(org.wildfly.build.pack.model.Artifact artifact) {
+        return getArtifactFile(toAetherArtifact(artifact));
+    }
+
+    @Override
+    public void prefetchArtifactFiles(Collection<org.wildfly.build.pack.model.Artifact> artifacts) {
+        final List<ArtifactRequest> requests = new ArrayList<>();
+        for (org.wildfly.build.pack.model.Artifact artifact : artifacts) {
+            final Artifact aetherArtifact = toAetherArtifact(artifact);
+            if (!prefetchedFiles.containsKey(aetherArtifact.toString())) {
+                requests.add(new ArtifactRequest(aetherArtifact, remoteRepos, null));
+            }
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        // a single request for all artifacts, so that the repository connectors download them concurrently
+        List<ArtifactResult> results;
+        try {
+            results = repoSystem.resolveArtifacts(repoSession, requests);
+        } catch (ArtifactResolutionException e) {
+            // failures are reported when the artifact file is retrieved
+            results = e.getResults();
+        }
+        for (ArtifactResult result : results) {
+            if (result.isResolved()) {
+                prefetchedFiles.put(result.getRequest().getArtifact().toString(), result.getArtifact().getFile());
+            }
+        }
+    }
+
+    private static Artifact toAetherArtifact(org.wildfly.build.pack.model.Artifact artifact) {
         final String groupId = artifact.getGroupId();
         final String artifactId = artifact.getArtifactId();
         final String extension = artifact.getPackaging() != null ? artifact.getPackaging() : "jar";
         final String classifier = artifact.getClassifier() != null ? artifact.getClassifier() : "";
-        return getArtifactFile(new DefaultArtifact(groupId, artifactId, classifier, extension, artifact.getVersion()));
+        return new DefaultArtifact(groupId, artifactId, classifier, extension, artifact.getVersion());
     }
 }
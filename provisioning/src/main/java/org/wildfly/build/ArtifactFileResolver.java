@@ -17,6 +17,7 @@
 package org.wildfly.build;
 
 import java.io.File;
+import java.util.Collection;
 
 import org.wildfly.build.pack.model.Artifact;
 
@@ -31,4 +32,12 @@ public interface ArtifactFileResolver {
      * @return
      */
     File getArtifactFile(Artifact artifact);
+
+    /**
+     * Resolves the files of the specified artifacts ahead of their retrieval, in batch, which resolvers may do
+     * concurrently. Failures to resolve an artifact are not reported here, but when its file is retrieved.
+     * @param artifacts
+     */
+    default void prefetchArtifactFiles(Collection<Artifact> artifacts) {
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.build;
+
+import org.wildfly.build.pack.model.Artifact;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link ArtifactFileResolver} which memoizes the files resolved by another resolver, so that each artifact is
+ * resolved once per instance, even if concurrently retrieved by multiple threads. Failed resolutions are not memoized.
+ *
+ * This class is thread safe.
+ */
+public class CachingArtifactFileResolver implements ArtifactFileResolver {
+
+    private final ArtifactFileResolver delegate;
+    private final ConcurrentMap<Artifact, FutureTask<File>> artifactFiles = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachingArtifactFileResolver(ArtifactFileResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public File getArtifactFile(final Artifact artifact) {
+        FutureTask<File> artifactFile = artifactFiles.get(artifact);
+        if (artifactFile == null) {
+            final FutureTask<File> newArtifactFile = new FutureTask<>(new Callable<File>() {
+                @Override
+                public File call() throws Exception {
+                    return delegate.getArtifactFile(artifact);
+                }
+            });
+            artifactFile = artifactFiles.putIfAbsent(artifact, newArtifactFile);
+            if (artifactFile == null) {
+                // this thread resolves the artifact, others wait for it
+                misses.incrementAndGet();
+                artifactFile = newArtifactFile;
+                artifactFile.run();
+            } else {
+                hits.incrementAndGet();
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        try {
+            return artifactFile.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while resolving artifact " + artifact, e);
+        } catch (ExecutionException e) {
+            artifactFiles.remove(artifact, artifactFile);
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Failed to resolve artifact " + artifact, cause);
+        }
+    }
+
+    @Override
+    public void prefetchArtifactFiles(Collection<Artifact> artifacts) {
+        final List<Artifact> missing = new ArrayList<>();
+        for (Artifact artifact : artifacts) {
+            if (!artifactFiles.containsKey(artifact)) {
+                missing.add(artifact);
+            }
+        }
+        if (!missing.isEmpty()) {
+            delegate.prefetchArtifactFiles(missing);
+        }
+    }
+
+    /**
+     *
+     * @return the number of artifact file retrievals served by a memoized (or in progress) resolution
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     *
+     * @return the number of artifact file retrievals which required a resolution by the delegate resolver
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingArtifactFileResolver{delegate=" + delegate + ", hits=" + hits + ", misses=" + misses + "}";
+    }
+}
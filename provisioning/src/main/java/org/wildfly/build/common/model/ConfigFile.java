@@ -20,6 +20,7 @@ import org.wildfly.build.configassembly.SubsystemConfig;
 import org.wildfly.build.configassembly.SubsystemsParser;
 import org.wildfly.build.util.InputStreamSource;
 import org.wildfly.build.util.ZipEntryInputStreamSource;
+import org.wildfly.build.util.ZipFileCache;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.File;
@@ -27,7 +28,6 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 /**
  *
@@ -73,8 +73,8 @@ public class ConfigFile {
      */
     public Map<String, Map<String, SubsystemConfig>> getSubsystemConfigs(File featurePackFile) throws IOException, XMLStreamException {
         Map<String, Map<String, SubsystemConfig>> subsystems = new HashMap<>();
-        try (ZipFile zip = new ZipFile(featurePackFile)) {
-            ZipEntry zipEntry = zip.getEntry(getSubsystems());
+        try (ZipFileCache.Ref ref = ZipFileCache.getInstance().open(featurePackFile)) {
+            ZipEntry zipEntry = ref.getJarFile().getEntry(getSubsystems());
             if (zipEntry == null) {
                 throw new RuntimeException("Feature pack " + featurePackFile + " subsystems file " + getSubsystems() + " not found");
             }
@@ -19,6 +19,7 @@ import org.wildfly.build.util.xml.AttributeValue;
 import org.wildfly.build.util.xml.ElementNode;
 
 import java.util.Map;
+import java.util.TreeMap;
 
 import static org.wildfly.build.common.model.ConfigModelParser10.Attribute;
 import static org.wildfly.build.common.model.ConfigModelParser10.Element;
@@ -58,7 +59,8 @@ public class ConfigXMLWriter11 {
     }
 
     protected void writeConfigFile(ConfigFile configFile, ElementNode configElementNode) {
-        for (Map.Entry<String, String> property : configFile.getProperties().entrySet()) {
+        // sorted, so that the written XML doesn't depend on the properties map order
+        for (Map.Entry<String, String> property : new TreeMap<>(configFile.getProperties()).entrySet()) {
             ElementNode propertyElementNode = new ElementNode(configElementNode, Element.PROPERTY.getLocalName());
             propertyElementNode.addAttribute(Attribute.NAME.getLocalName(), new AttributeValue(property.getKey()));
             propertyElementNode.addAttribute(Attribute.VALUE.getLocalName(), new AttributeValue(property.getValue()));
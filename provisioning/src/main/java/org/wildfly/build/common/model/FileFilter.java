@@ -15,9 +15,7 @@
  */
 package org.wildfly.build.common.model;
 
-import org.wildfly.build.util.xml.ParsingUtils;
-
-import java.util.regex.Pattern;
+import org.wildfly.build.util.WildcardMatcher;
 
 /**
  * @author Stuart Douglas
@@ -25,7 +23,7 @@ import java.util.regex.Pattern;
 public class FileFilter {
 
     private final String patternString;
-    private final Pattern pattern;
+    private final WildcardMatcher matcher;
     private final boolean include;
 
     public FileFilter(String patternString, boolean include) {
@@ -33,7 +31,7 @@ public class FileFilter {
             throw new IllegalArgumentException("null pattern");
         }
         this.patternString = patternString;
-        this.pattern = Pattern.compile(ParsingUtils.wildcardToJavaRegexp(patternString));
+        this.matcher = WildcardMatcher.of(patternString);
         this.include = include;
     }
 
@@ -42,10 +40,10 @@ public class FileFilter {
     }
 
     /**
-     * Returns true if the file matches the regular expression
+     * Returns true if the file matches the wildcard expression
      */
     public boolean matches(final String filePath) {
-        return pattern.matcher(filePath).matches();
+        return matcher.matches(filePath);
     }
 
     public boolean isInclude() {
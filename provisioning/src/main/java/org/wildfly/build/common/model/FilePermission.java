@@ -16,8 +16,9 @@
 
 package org.wildfly.build.common.model;
 
+import org.wildfly.build.util.WildcardFilterList;
+
 import java.nio.file.attribute.PosixFilePermission;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -31,7 +32,12 @@ public class FilePermission {
 
     private final Set<PosixFilePermission> permission;
     private final String value;
-    private final List<FileFilter> filters = new ArrayList<>();
+    private final WildcardFilterList<FileFilter> filters = new WildcardFilterList<FileFilter>() {
+        @Override
+        protected String getPattern(FileFilter filter) {
+            return filter.getPattern();
+        }
+    };
 
     public FilePermission(String value) {
         this.value = value;
@@ -90,10 +96,9 @@ public class FilePermission {
     }
 
     public boolean includeFile(final String path) {
-        for(FileFilter filter : filters) {
-            if(filter.matches(path)) {
-                return filter.isInclude();
-            }
+        final FileFilter filter = filters.firstMatch(path);
+        if (filter != null) {
+            return filter.isInclude();
         }
         return false; //default exclude
     }
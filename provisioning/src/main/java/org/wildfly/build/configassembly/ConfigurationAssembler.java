@@ -17,28 +17,49 @@ package org.wildfly.build.configassembly;
 
 import org.wildfly.build.util.InputStreamSource;
 import org.wildfly.build.util.xml.AttributeValue;
+import org.wildfly.build.util.xml.CDataNode;
+import org.wildfly.build.util.xml.CommentNode;
 import org.wildfly.build.util.xml.ElementNode;
 import org.wildfly.build.util.xml.FormattingXMLStreamWriter;
 import org.wildfly.build.util.xml.Node;
+import org.wildfly.build.util.xml.NodeParser;
+import org.wildfly.build.util.xml.ParsingUtils;
 import org.wildfly.build.util.xml.ProcessingInstructionNode;
+import org.wildfly.build.util.xml.TextNode;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
-import java.io.BufferedWriter;
-import java.io.Closeable;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.COMMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.PROCESSING_INSTRUCTION;
+import static javax.xml.stream.XMLStreamConstants.START_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
 /**
+ * Assembles a config from its template and the subsystems of its profiles. The template is streamed to the output,
+ * and only the subsystem templates, shared through the {@link ParsedSubsystemCache}, and the template's socket binding
+ * groups and interfaces, merged with those of the subsystems, are kept in memory, never the whole config.
  *
  * @author <a href="kabir.khan@jboss.com">Kabir Khan</a>
  */
@@ -49,19 +70,41 @@ public class ConfigurationAssembler {
     private final String templateRootElementName;
     private final File outputFile;
     private final Map<String, Map<String, SubsystemConfig>> subsystemConfigs;
+    private final ParsedSubsystemCache parsedSubsystemCache;
 
     public ConfigurationAssembler(SubsystemInputStreamSources subsystemInputStreamSources, InputStreamSource templateInputStreamSource, String templateRootElementName, Map<String, Map<String, SubsystemConfig>> subsystemConfigs, File outputFile) {
+        this(subsystemInputStreamSources, templateInputStreamSource, templateRootElementName, subsystemConfigs, outputFile, new ParsedSubsystemCache());
+    }
+
+    /**
+     *
+     * @param subsystemInputStreamSources
+     * @param templateInputStreamSource
+     * @param templateRootElementName
+     * @param subsystemConfigs
+     * @param outputFile
+     * @param parsedSubsystemCache the cache of parsed subsystem templates, which may be shared with other assemblers
+     */
+    public ConfigurationAssembler(SubsystemInputStreamSources subsystemInputStreamSources, InputStreamSource templateInputStreamSource, String templateRootElementName, Map<String, Map<String, SubsystemConfig>> subsystemConfigs, File outputFile, ParsedSubsystemCache parsedSubsystemCache) {
         this.subsystemInputStreamSources = subsystemInputStreamSources;
         this.templateInputStreamSource = templateInputStreamSource;
         this.templateRootElementName = templateRootElementName;
         this.subsystemConfigs = subsystemConfigs;
         this.outputFile = outputFile.getAbsoluteFile();
+        this.parsedSubsystemCache = parsedSubsystemCache;
     }
 
+    /**
+     * Assembles the config, streaming the template to the output file, and splicing in the extensions, subsystems,
+     * socket bindings and interfaces at the template's processing instructions.
+     * @throws IOException
+     * @throws XMLStreamException
+     */
     public void assemble() throws IOException, XMLStreamException {
-        TemplateParser templateParser = new TemplateParser(templateInputStreamSource, templateRootElementName);
-        templateParser.parse();
-        populateTemplate(templateParser, subsystemConfigs);
+        final TemplateAssembly assembly = new TemplateAssembly();
+        // fails before the output is touched, if the template or the subsystems are not valid
+        assembly.scanTemplate();
+        assembly.populate();
 
         if (outputFile.exists()) {
             outputFile.delete();
@@ -71,148 +114,361 @@ public class ConfigurationAssembler {
                 throw new IllegalStateException("Could not create " + outputFile.getParentFile());
             }
         }
-        FileWriter fileWriter = new FileWriter(outputFile);
-        BufferedWriter bufferedWriter = new BufferedWriter(fileWriter);
-        FormattingXMLStreamWriter writer = new FormattingXMLStreamWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(bufferedWriter));
+        FormattingXMLStreamWriter writer = FormattingXMLStreamWriter.create(outputFile);
+        boolean assembled = false;
         try {
             writer.writeStartDocument();
-            templateParser.getRootNode().marshall(writer);
+            assembly.writeTemplate(writer);
             writer.writeEndDocument();
+            assembled = true;
         } finally {
-            // XMLStreamWriter does not close inner streams!
+            // also closes the file
             safeClose(writer);
-            safeClose(bufferedWriter);
-            // BufferedWriter does, but just in case...
-            safeClose(fileWriter);
+            if (!assembled) {
+                // do not leave a truncated config behind
+                outputFile.delete();
+            }
         }
     }
 
-    private void safeClose(Closeable c) {
+    private void safeClose(XMLStreamWriter c) {
         try {
             c.close();
         } catch (Throwable e) {
         }
     }
 
-    private void safeClose(XMLStreamWriter c) {
-        try {
-            c.close();
-        } catch (Throwable e) {
+    private static ElementNode createElementNode(XMLStreamReader reader, ElementNode parent) {
+        // same as the NodeParser
+        String namespace = reader.getNamespaceURI() != null && reader.getNamespaceURI().length() > 0 ? reader.getNamespaceURI() : null;
+        ElementNode elementNode = new ElementNode(parent, reader.getLocalName(), namespace);
+        int count = reader.getAttributeCount();
+        for (int i = 0 ; i < count ; i++) {
+            elementNode.addAttribute(reader.getAttributeLocalName(i), new AttributeValue(reader.getAttributeValue(i)));
         }
+        return elementNode;
     }
 
-    private void populateTemplate(TemplateParser templateParser, Map<String, Map<String, SubsystemConfig>> subsystemsConfigs) throws IOException, XMLStreamException{
-        final Set<String> extensions = new TreeSet<String>();
-        final Map<String, Map<String, ElementNode>> socketBindingsByGroup = new HashMap<String, Map<String, ElementNode>>();
-        final Map<String, Map<String, ElementNode>> outboundSocketBindingsByGroup = new HashMap<String, Map<String, ElementNode>>();
-        final Map<String, ElementNode> interfaces = new TreeMap<>();
-        for (Map.Entry<String, ProcessingInstructionNode> subsystemEntry : templateParser.getSubsystemPlaceholders().entrySet()) {
-            final String profileName = subsystemEntry.getKey();
-            final String groupName = subsystemEntry.getValue().getDataValue("socket-binding-group", "");
-
-            final Map<String, SubsystemConfig> subsystems = subsystemsConfigs.get(profileName);
-            if (subsystems == null) {
-                throw new IllegalStateException("Could not find a subsystems configuration called '" + subsystemEntry.getKey());
-            }
-            final Map<String, ElementNode> socketBindings = new TreeMap<String, ElementNode>();
-            if (socketBindingsByGroup.put(groupName, socketBindings) != null) {
-                throw new IllegalStateException("Group '" + groupName + "' already exists");
+    /**
+     * The assembly of a config from its template, which is read twice, first to find the template's processing
+     * instructions, then to copy it to the output, with the content of each processing instruction spliced in. Only the
+     * elements where the template's socket bindings and interfaces are merged with the subsystems' ones are kept in
+     * memory, the rest of the template is never materialized.
+     */
+    private class TemplateAssembly {
+
+        /**
+         * the registry of the template's processing instructions, the template itself is not parsed with it
+         */
+        private final TemplateParser templateParser = new TemplateParser(templateInputStreamSource, templateRootElementName);
+        /**
+         * the template's processing instructions, in document order
+         */
+        private final List<ProcessingInstructionNode> placeholders = new ArrayList<>();
+        private final Set<String> rootChildNames = new HashSet<>();
+        private ElementNode root;
+
+        private final Map<String, Map<String, ElementNode>> socketBindingsByGroup = new HashMap<String, Map<String, ElementNode>>();
+        private final Map<String, Map<String, ElementNode>> outboundSocketBindingsByGroup = new HashMap<String, Map<String, ElementNode>>();
+        private final Map<ProcessingInstructionNode, String> socketBindingsPlaceholderGroups = new IdentityHashMap<>();
+        private final Map<String, ElementNode> interfaces = new TreeMap<>();
+        private boolean removeProfilesAndExtensions;
+        private String socketBindingGroupsElementName;
+        private int nextPlaceholder;
+
+        /**
+         * Reads the template's root element and processing instructions.
+         */
+        private void scanTemplate() throws IOException, XMLStreamException {
+            try (InputStream in = templateInputStreamSource.getInputStream()) {
+                XMLStreamReader reader = XMLStreamFactories.createReader(in);
+                reader.require(START_DOCUMENT, null, null);
+                ParsingUtils.getNextElement(reader, templateRootElementName, null, false);
+                root = createElementNode(reader, null);
+                // the current element and its ancestors, needed to validate the processing instructions
+                final Deque<ElementNode> elements = new ArrayDeque<>();
+                elements.push(root);
+                while (!elements.isEmpty()) {
+                    if (!reader.hasNext()) {
+                        throw new XMLStreamException("Element was not terminated", reader.getLocation());
+                    }
+                    switch (reader.next()) {
+                        case START_ELEMENT:
+                            ElementNode element = createElementNode(reader, elements.peek());
+                            if (elements.size() == 1) {
+                                rootChildNames.add(element.getName());
+                            }
+                            elements.push(element);
+                            break;
+                        case END_ELEMENT:
+                            elements.pop();
+                            break;
+                        case PROCESSING_INSTRUCTION:
+                            placeholders.add(templateParser.parseProcessingInstruction(reader, elements.peek()));
+                            break;
+                        default:
+                            break;
+                    }
+                }
             }
-            final Map<String, ElementNode> outboundSocketBindings = new TreeMap<String, ElementNode>();
-            outboundSocketBindingsByGroup.put(groupName, outboundSocketBindings);
+        }
 
-            for (SubsystemConfig subsystem : subsystems.values()) {
-                final InputStreamSource inputStreamSource = subsystemInputStreamSources.getInputStreamSource(subsystem.getSubsystem());
-                if (inputStreamSource == null) {
-                    throw new IllegalStateException("Could not resolve '" + subsystem + " Check the module for the extension has been defined.");
+        /**
+         * Computes the content of the template's processing instructions. The subsystems are retrieved from the
+         * parsed subsystem cache, their nodes are spliced in the output as they are.
+         */
+        private void populate() throws IOException, XMLStreamException {
+            final Set<String> extensions = new TreeSet<String>();
+            for (Map.Entry<String, ProcessingInstructionNode> subsystemEntry : templateParser.getSubsystemPlaceholders().entrySet()) {
+                final String profileName = subsystemEntry.getKey();
+                final String groupName = subsystemEntry.getValue().getDataValue("socket-binding-group", "");
+
+                final Map<String, SubsystemConfig> subsystems = subsystemConfigs.get(profileName);
+                if (subsystems == null) {
+                    throw new IllegalStateException("Could not find a subsystems configuration called '" + subsystemEntry.getKey());
                 }
-                final SubsystemParser subsystemParser = new SubsystemParser(templateParser.getRootNode().getNamespace(), subsystem.getSupplement(), inputStreamSource);
-                subsystemParser.parse();
-                subsystemEntry.getValue().addDelegate(subsystemParser.getSubsystem());
-                extensions.add(subsystemParser.getExtensionModule());
-                for (Map.Entry<String, ElementNode> entry : subsystemParser.getSocketBindings().entrySet()) {
-                    if (socketBindings.containsKey(entry.getKey())) {
-                        throw new IllegalStateException("SocketBinding '" + entry + "' already exists");
-                    }
-                    socketBindings.put(entry.getKey(), entry.getValue());
+                final Map<String, ElementNode> socketBindings = new TreeMap<String, ElementNode>();
+                if (socketBindingsByGroup.put(groupName, socketBindings) != null) {
+                    throw new IllegalStateException("Group '" + groupName + "' already exists");
                 }
-                for (Map.Entry<String, ElementNode> entry : subsystemParser.getOutboundSocketBindings().entrySet()) {
-                    if (outboundSocketBindings.containsKey(entry.getKey())) {
-                        throw new IllegalStateException("Outbound SocketBinding '" + entry + "' already exists");
+                final Map<String, ElementNode> outboundSocketBindings = new TreeMap<String, ElementNode>();
+                outboundSocketBindingsByGroup.put(groupName, outboundSocketBindings);
+
+                for (SubsystemConfig subsystem : subsystems.values()) {
+                    final InputStreamSource inputStreamSource = subsystemInputStreamSources.getInputStreamSource(subsystem.getSubsystem());
+                    if (inputStreamSource == null) {
+                        throw new IllegalStateException("Could not resolve '" + subsystem + " Check the module for the extension has been defined.");
                     }
-                    outboundSocketBindings.put(entry.getKey(), entry.getValue());
-                }
-                for (Map.Entry<String, ElementNode> entry : subsystemParser.getInterfaces().entrySet()) {
+                    final SubsystemParser subsystemParser = parsedSubsystemCache.getParsedSubsystem(root.getNamespace(), subsystem.getSupplement(), inputStreamSource);
+                    subsystemEntry.getValue().addDelegate(subsystemParser.getSubsystem());
+                    extensions.add(subsystemParser.getExtensionModule());
+                    for (Map.Entry<String, ElementNode> entry : subsystemParser.getSocketBindings().entrySet()) {
+                        if (socketBindings.containsKey(entry.getKey())) {
+                            throw new IllegalStateException("SocketBinding '" + entry + "' already exists");
+                        }
+                        socketBindings.put(entry.getKey(), entry.getValue());
+                    }
+                    for (Map.Entry<String, ElementNode> entry : subsystemParser.getOutboundSocketBindings().entrySet()) {
+                        if (outboundSocketBindings.containsKey(entry.getKey())) {
+                            throw new IllegalStateException("Outbound SocketBinding '" + entry + "' already exists");
+                        }
+                        outboundSocketBindings.put(entry.getKey(), entry.getValue());
+                    }
+                    for (Map.Entry<String, ElementNode> entry : subsystemParser.getInterfaces().entrySet()) {
                         interfaces.put(entry.getKey(), entry.getValue());
+                    }
                 }
             }
-        }
 
-        if (extensions.size() > 0) {
-            final ProcessingInstructionNode extensionNode = templateParser.getExtensionPlaceHolder();
-            for (String extension : extensions) {
-                final ElementNode extensionElement = new ElementNode(null, "extension", templateParser.getRootNode().getNamespace());
-                extensionElement.addAttribute("module", new AttributeValue(extension));
-                extensionNode.addDelegate(extensionElement);
+            if (extensions.size() > 0) {
+                final ProcessingInstructionNode extensionNode = templateParser.getExtensionPlaceHolder();
+                for (String extension : extensions) {
+                    final ElementNode extensionElement = new ElementNode(null, "extension", root.getNamespace());
+                    extensionElement.addAttribute("module", new AttributeValue(extension));
+                    extensionNode.addDelegate(extensionElement);
+                }
+            } else {
+                //Delete the extensions element if there are no extensions
+                removeProfilesAndExtensions = true;
             }
-        } else {
-            //Delete the extensions element if there are no extensions
-            for (Iterator<Node> it = templateParser.getRootNode().iterateChildren() ; it.hasNext() ; ) {
-                Node node = it.next();
-                if (node instanceof ElementNode) {
-                    ElementNode elementNode = (ElementNode)node;
-                    if (elementNode.getName().equals("extensions") || elementNode.getName().equals("profile")) {
-                        it.remove();
+            if (socketBindingsByGroup.size() > 0 && outboundSocketBindingsByGroup.size() > 0) {
+                for (Map.Entry<String, ProcessingInstructionNode> entry : templateParser.getSocketBindingsPlaceHolders().entrySet()) {
+                    if (socketBindingsByGroup.get(entry.getKey()) == null) {
+                        throw new IllegalArgumentException("No socket bindings for group " + entry.getKey());
                     }
+                    socketBindingsPlaceholderGroups.put(entry.getValue(), entry.getKey());
                 }
+                // the template's [outbound-]socket-binding children are sorted with those added by the subsystems
+                if (rootChildNames.contains("socket-binding-groups")) {
+                    socketBindingGroupsElementName = "socket-binding-groups";
+                } else if (rootChildNames.contains("socket-binding-group")) {
+                    socketBindingGroupsElementName = "socket-binding-group";
+                }
+            }
+            if (interfaces.size() > 0 && !rootChildNames.contains("interfaces")) {
+                throw new IllegalStateException("Node " + root.getName() + " has no children named interfaces");
             }
         }
-        if (socketBindingsByGroup.size() > 0 && outboundSocketBindingsByGroup.size() > 0) {
 
-            // Store [outbound-]socket-binding children from the template so they are sorted with those added by the subsystems
-            ElementNode socketGroupsParent = findElementNode(templateParser.getRootNode(), "socket-binding-groups", false);
-            if (socketGroupsParent != null) {
-                for (Iterator<Node> it = socketGroupsParent.iterateChildren(); it.hasNext(); ) {
-                    Node node = it.next();
-                    if (node instanceof ElementNode) {
-                        ElementNode groupNode = (ElementNode) node;
-                        integrateTemplateBindings(templateParser, socketBindingsByGroup, outboundSocketBindingsByGroup, groupNode);
+        /**
+         * Copies the template to the output, splicing in the content of the processing instructions.
+         */
+        private void writeTemplate(XMLStreamWriter writer) throws IOException, XMLStreamException {
+            try (InputStream in = templateInputStreamSource.getInputStream()) {
+                XMLStreamReader reader = XMLStreamFactories.createReader(in);
+                reader.require(START_DOCUMENT, null, null);
+                ParsingUtils.getNextElement(reader, templateRootElementName, null, false);
+                // the open elements, the start of the last one is only written once it has content, otherwise it's written as an empty element
+                final Deque<ElementNode> elements = new ArrayDeque<>();
+                ElementNode pending = createElementNode(reader, null);
+                elements.push(pending);
+                boolean socketBindingsIntegrated = false;
+                boolean interfacesIntegrated = false;
+                while (!elements.isEmpty()) {
+                    if (!reader.hasNext()) {
+                        throw new XMLStreamException("Element was not terminated", reader.getLocation());
+                    }
+                    switch (reader.next()) {
+                        case START_ELEMENT:
+                            ElementNode element = createElementNode(reader, null);
+                            if (elements.size() == 1) {
+                                final String name = element.getName();
+                                if (removeProfilesAndExtensions && (name.equals("extensions") || name.equals("profile"))) {
+                                    skipElement(reader);
+                                    break;
+                                }
+                                if (!socketBindingsIntegrated && name.equals(socketBindingGroupsElementName)) {
+                                    socketBindingsIntegrated = true;
+                                    writePending(writer, pending);
+                                    pending = null;
+                                    writeSocketBindingGroups(reader, writer);
+                                    break;
+                                }
+                                if (!interfacesIntegrated && interfaces.size() > 0 && name.equals("interfaces")) {
+                                    interfacesIntegrated = true;
+                                    writePending(writer, pending);
+                                    pending = null;
+                                    writeInterfaces(reader, writer);
+                                    break;
+                                }
+                            }
+                            writePending(writer, pending);
+                            pending = element;
+                            elements.push(element);
+                            break;
+                        case END_ELEMENT:
+                            if (elements.pop() == pending) {
+                                pending.marshallStartElement(writer, true);
+                                pending = null;
+                            } else {
+                                writer.writeEndElement();
+                            }
+                            break;
+                        case COMMENT:
+                            writePending(writer, pending);
+                            pending = null;
+                            new CommentNode(reader.getText()).marshall(writer);
+                            break;
+                        case CDATA:
+                            writePending(writer, pending);
+                            pending = null;
+                            new CDataNode(reader.getText()).marshall(writer);
+                            break;
+                        case CHARACTERS:
+                            if (!reader.isWhiteSpace()) {
+                                writePending(writer, pending);
+                                pending = null;
+                                new TextNode(reader.getText()).marshall(writer);
+                            }
+                            break;
+                        case PROCESSING_INSTRUCTION:
+                            final ProcessingInstructionNode placeholder = nextPlaceholder();
+                            populatePlaceholder(placeholder);
+                            if (placeholder.hasContent()) {
+                                writePending(writer, pending);
+                                pending = null;
+                                placeholder.marshall(writer);
+                            }
+                            break;
+                        default:
+                            break;
                     }
                 }
-            } else {
-                ElementNode groupNode = findElementNode(templateParser.getRootNode(), "socket-binding-group", false);
-                if (groupNode != null) {
-                    integrateTemplateBindings(templateParser, socketBindingsByGroup, outboundSocketBindingsByGroup, groupNode);
+            }
+        }
+
+        private void writePending(XMLStreamWriter writer, ElementNode pending) throws XMLStreamException {
+            if (pending != null) {
+                pending.marshallStartElement(writer, false);
+            }
+        }
+
+        /**
+         * Skips the current element, and the processing instructions it contains.
+         */
+        private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                switch (reader.next()) {
+                    case START_ELEMENT:
+                        depth++;
+                        break;
+                    case END_ELEMENT:
+                        depth--;
+                        break;
+                    case PROCESSING_INSTRUCTION:
+                        nextPlaceholder();
+                        break;
+                    default:
+                        break;
                 }
             }
+        }
 
-            for (Map.Entry<String, ProcessingInstructionNode> entry : templateParser.getSocketBindingsPlaceHolders().entrySet()) {
-                Map<String, ElementNode> socketBindings = socketBindingsByGroup.get(entry.getKey());
-                if (socketBindings == null) {
-                    throw new IllegalArgumentException("No socket bindings for group " + entry.getKey());
+        /**
+         * Reads the current element, with the processing instructions found by the scan.
+         * @param placeholders where the element's processing instructions are added
+         */
+        private ElementNode readElement(XMLStreamReader reader, final List<ProcessingInstructionNode> placeholders) throws XMLStreamException {
+            return new NodeParser() {
+                @Override
+                protected ProcessingInstructionNode parseProcessingInstruction(XMLStreamReader reader, ElementNode parent) throws XMLStreamException {
+                    final ProcessingInstructionNode placeholder = nextPlaceholder();
+                    placeholders.add(placeholder);
+                    return placeholder;
                 }
-                if (socketBindings.size() > 0) {
-                    for (ElementNode binding : socketBindings.values()) {
-                        entry.getValue().addDelegate(binding);
+            }.parseNode(reader, reader.getLocalName());
+        }
+
+        private void writeSocketBindingGroups(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+            final List<ProcessingInstructionNode> placeholders = new ArrayList<>();
+            final ElementNode socketGroupsParent = readElement(reader, placeholders);
+            if (socketGroupsParent.getName().equals("socket-binding-groups")) {
+                for (Iterator<Node> it = socketGroupsParent.iterateChildren(); it.hasNext(); ) {
+                    Node node = it.next();
+                    if (node instanceof ElementNode) {
+                        integrateTemplateBindings((ElementNode) node);
                     }
                 }
+            } else {
+                integrateTemplateBindings(socketGroupsParent);
             }
-            for (Map.Entry<String, ProcessingInstructionNode> entry : templateParser.getSocketBindingsPlaceHolders().entrySet()) {
-                Map<String, ElementNode> outboundSocketBindings = outboundSocketBindingsByGroup.get(entry.getKey());
-                if (outboundSocketBindings == null) {
-                    throw new IllegalArgumentException("No outbound socket bindings for group " + entry.getKey());
-                }
-                if (outboundSocketBindings.size() > 0) {
-                    for (ElementNode binding : outboundSocketBindings.values()) {
-                        entry.getValue().addDelegate(binding);
+            for (ProcessingInstructionNode placeholder : placeholders) {
+                populatePlaceholder(placeholder);
+            }
+            socketGroupsParent.marshall(writer);
+        }
+
+        private void integrateTemplateBindings(ElementNode groupNode) {
+            String groupName = groupNode.getAttributeValue("name");
+            if (templateParser.getSocketBindingsPlaceHolders().containsKey(groupName)) {
+
+                // We have processing instructions for this group, so we want to mix in any bindings
+                // direct added from the template
+
+                Map<String, ElementNode> inboundMap = socketBindingsByGroup.get(groupName);
+                Map<String, ElementNode> outboundMap = outboundSocketBindingsByGroup.get(groupName);
+
+                for (Iterator<Node> groupit = groupNode.iterateChildren(); groupit.hasNext(); ) {
+                    Node bnode = groupit.next();
+                    if (bnode instanceof ElementNode) {
+                        ElementNode bindingNode = (ElementNode) bnode;
+                        if (inboundMap != null && bindingNode.getName().equals("socket-binding")) {
+                            inboundMap.putIfAbsent(bindingNode.getAttributeValue("name"), bindingNode);
+                            groupit.remove();
+                        } else if (outboundMap != null && bindingNode.getName().equals("outbound-socket-binding")) {
+                            outboundMap.putIfAbsent(bindingNode.getAttributeValue("name"), bindingNode);
+                            groupit.remove();
+                        }
                     }
                 }
             }
         }
-        if (interfaces.size() > 0) {
+
+        private void writeInterfaces(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
             // Store interface children from the template so they are sorted with those added by the subsystems
-            ElementNode interfacesParent = findElementNode(templateParser.getRootNode(), "interfaces", true);
-            assert interfacesParent != null;
+            final List<ProcessingInstructionNode> placeholders = new ArrayList<>();
+            final ElementNode interfacesParent = readElement(reader, placeholders);
             for (Iterator<Node> it = interfacesParent.iterateChildren(); it.hasNext() ; ) {
                 Node node = it.next();
                 if (node instanceof ElementNode) {
@@ -221,52 +477,34 @@ public class ConfigurationAssembler {
                     it.remove();
                 }
             }
-            final ProcessingInstructionNode interfacesNode = templateParser.getInterfacesPlaceHolders();
-            for (ElementNode interfaceElement : interfaces.values()) {
-                interfacesNode.addDelegate(interfaceElement);
+            for (ProcessingInstructionNode placeholder : placeholders) {
+                populatePlaceholder(placeholder);
             }
+            interfacesParent.marshall(writer);
         }
-    }
 
-    private void integrateTemplateBindings(TemplateParser templateParser, Map<String, Map<String, ElementNode>> socketBindingsByGroup, Map<String, Map<String, ElementNode>> outboundSocketBindingsByGroup, ElementNode groupNode) {
-        String groupName = groupNode.getAttributeValue("name");
-        if (templateParser.getSocketBindingsPlaceHolders().containsKey(groupName)) {
-
-            // We have processing instructions for this group, so we want to mix in any bindings
-            // direct added from the template
-
-            Map<String, ElementNode> inboundMap = socketBindingsByGroup.get(groupName);
-            Map<String, ElementNode> outboundMap = outboundSocketBindingsByGroup.get(groupName);
-
-            for (Iterator<Node> groupit = groupNode.iterateChildren(); groupit.hasNext(); ) {
-                Node bnode = groupit.next();
-                if (bnode instanceof ElementNode) {
-                    ElementNode bindingNode = (ElementNode) bnode;
-                    if (inboundMap != null && bindingNode.getName().equals("socket-binding")) {
-                        inboundMap.putIfAbsent(bindingNode.getAttributeValue("name"), bindingNode);
-                        groupit.remove();
-                    } else if (outboundMap != null && bindingNode.getName().equals("outbound-socket-binding")) {
-                        outboundMap.putIfAbsent(bindingNode.getAttributeValue("name"), bindingNode);
-                        groupit.remove();
-                    }
-                }
-            }
+        private ProcessingInstructionNode nextPlaceholder() {
+            return placeholders.get(nextPlaceholder++);
         }
-    }
 
-    private static ElementNode findElementNode(ElementNode parent, String name, boolean required) {
-        for (Iterator<Node> it = parent.iterateChildren() ; it.hasNext() ; ) {
-            Node node = it.next();
-            if (node instanceof ElementNode) {
-                ElementNode elementNode = (ElementNode)node;
-                if (elementNode.getName().equals(name)) {
-                    return elementNode;
+        /**
+         * Adds the socket bindings or interfaces to a processing instruction, which may only be done once the template's
+         * own ones, sorted with those of the subsystems, have been read.
+         */
+        private void populatePlaceholder(ProcessingInstructionNode placeholder) {
+            final String groupName = socketBindingsPlaceholderGroups.remove(placeholder);
+            if (groupName != null) {
+                for (ElementNode binding : socketBindingsByGroup.get(groupName).values()) {
+                    placeholder.addDelegate(binding);
+                }
+                for (ElementNode binding : outboundSocketBindingsByGroup.get(groupName).values()) {
+                    placeholder.addDelegate(binding);
+                }
+            } else if (placeholder == templateParser.getInterfacesPlaceHolders() && interfaces.size() > 0) {
+                for (ElementNode interfaceElement : interfaces.values()) {
+                    placeholder.addDelegate(interfaceElement);
                 }
             }
         }
-        if (required) {
-            throw new IllegalStateException("Node " + parent.getName() + " has no children named " + name);
-        }
-        return null;
     }
 }
@@ -16,8 +16,8 @@
 package org.wildfly.build.configassembly;
 
 import org.wildfly.build.util.InputStreamSource;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
@@ -43,7 +43,7 @@ public class ExampleParser {
 
     void parse() throws IOException, XMLStreamException {
         try (InputStream in = inputStreamSource.getInputStream()) {
-            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+            XMLStreamReader reader = XMLStreamFactories.createReader(in);
             reader.require(START_DOCUMENT, null, null);
             int type = reader.next();
             while (type != END_DOCUMENT) {
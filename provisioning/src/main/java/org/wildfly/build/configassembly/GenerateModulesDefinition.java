@@ -19,7 +19,6 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -27,7 +26,6 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import org.jboss.logging.Logger;
@@ -168,13 +166,11 @@ public class GenerateModulesDefinition {
         }
 
         String xmloutput = outputFile.getPath();
-        Writer writer = new FileWriter(xmloutput.substring(0, xmloutput.lastIndexOf(".")) + ".xml");
+        XMLStreamWriter xmlwriter = FormattingXMLStreamWriter.create(new File(xmloutput.substring(0, xmloutput.lastIndexOf(".")) + ".xml"));
         try {
-            XMLOutputFactory factory = XMLOutputFactory.newInstance();
-            XMLStreamWriter xmlwriter = new FormattingXMLStreamWriter(factory.createXMLStreamWriter(writer));
             modulesNode.marshall(xmlwriter);
         } finally {
-            writer.close();
+            xmlwriter.close();
         }
     }
 
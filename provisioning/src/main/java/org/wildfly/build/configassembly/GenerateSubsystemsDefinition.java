@@ -21,14 +21,11 @@ import org.wildfly.build.util.xml.FormattingXMLStreamWriter;
 import org.wildfly.build.util.xml.TextNode;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
@@ -121,10 +118,11 @@ public class GenerateSubsystemsDefinition {
             }
         }
 
-        try (Writer writer = new FileWriter(outputFile)) {
-            XMLOutputFactory factory = XMLOutputFactory.newInstance();
-            XMLStreamWriter xmlwriter = new FormattingXMLStreamWriter(factory.createXMLStreamWriter(writer));
+        XMLStreamWriter xmlwriter = FormattingXMLStreamWriter.create(outputFile);
+        try {
             config.marshall(xmlwriter);
+        } finally {
+            xmlwriter.close();
         }
     }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.build.configassembly;
+
+import org.wildfly.build.util.InputStreamSource;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A cache of parsed subsystem templates, keyed by template source, supplement and socket binding namespace, which may
+ * be shared by multiple {@link ConfigurationAssembler}s, e.g. all configs of a provisioning run, so that each template
+ * is parsed once, instead of once per config and profile. Template sources are compared with equals.
+ *
+ * A supplement is applied when the template is parsed, and the parsed nodes are never modified by the assembly, thus
+ * the same nodes are marshalled by all configs and profiles using the template.
+ *
+ * This class is thread safe.
+ */
+public class ParsedSubsystemCache {
+
+    private final ConcurrentMap<Key, FutureTask<SubsystemParser>> parsedSubsystems = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieves the parsed subsystem template, parsing it if not cached.
+     * @param socketBindingNamespace
+     * @param supplementName
+     * @param inputStreamSource the template source
+     * @return
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    SubsystemParser getParsedSubsystem(final String socketBindingNamespace, final String supplementName, final InputStreamSource inputStreamSource) throws IOException, XMLStreamException {
+        final Key key = new Key(socketBindingNamespace, supplementName, inputStreamSource);
+        FutureTask<SubsystemParser> parsedSubsystem = parsedSubsystems.get(key);
+        if (parsedSubsystem == null) {
+            final FutureTask<SubsystemParser> newParsedSubsystem = new FutureTask<>(new Callable<SubsystemParser>() {
+                @Override
+                public SubsystemParser call() throws Exception {
+                    final SubsystemParser subsystemParser = new SubsystemParser(socketBindingNamespace, supplementName, inputStreamSource);
+                    subsystemParser.parse();
+                    return subsystemParser;
+                }
+            });
+            parsedSubsystem = parsedSubsystems.putIfAbsent(key, newParsedSubsystem);
+            if (parsedSubsystem == null) {
+                // this thread parses the template, others wait for it
+                parsedSubsystem = newParsedSubsystem;
+                parsedSubsystem.run();
+            }
+        }
+        try {
+            return parsedSubsystem.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing subsystem template", e);
+        } catch (ExecutionException e) {
+            parsedSubsystems.remove(key, parsedSubsystem);
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof XMLStreamException) {
+                throw (XMLStreamException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Failed to parse subsystem template", cause);
+        }
+    }
+
+    private static class Key {
+
+        private final String socketBindingNamespace;
+        private final String supplementName;
+        private final InputStreamSource inputStreamSource;
+
+        private Key(String socketBindingNamespace, String supplementName, InputStreamSource inputStreamSource) {
+            this.socketBindingNamespace = socketBindingNamespace;
+            this.supplementName = supplementName;
+            this.inputStreamSource = inputStreamSource;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+
+            return inputStreamSource.equals(that.inputStreamSource)
+                    && Objects.equals(socketBindingNamespace, that.socketBindingNamespace)
+                    && Objects.equals(supplementName, that.supplementName);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = inputStreamSource.hashCode();
+            result = 31 * result + Objects.hashCode(socketBindingNamespace);
+            result = 31 * result + Objects.hashCode(supplementName);
+            return result;
+        }
+    }
+}
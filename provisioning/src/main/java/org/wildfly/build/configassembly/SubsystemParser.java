@@ -22,13 +22,14 @@ import org.wildfly.build.util.xml.Node;
 import org.wildfly.build.util.xml.NodeParser;
 import org.wildfly.build.util.xml.ParsingUtils;
 import org.wildfly.build.util.xml.ProcessingInstructionNode;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -41,6 +42,8 @@ import static javax.xml.stream.XMLStreamConstants.START_DOCUMENT;
 import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
 
 /**
+ * Parses a subsystem template, applying its supplement. Once parsed the nodes are not modified, and may be shared by
+ * multiple configs, see {@link ParsedSubsystemCache}.
  *
  * @author <a href="kabir.khan@jboss.com">Kabir Khan</a>
  */
@@ -73,22 +76,20 @@ class SubsystemParser extends NodeParser {
     }
 
     Map<String, ElementNode> getSocketBindings(){
-        return socketBindings;
+        return Collections.unmodifiableMap(socketBindings);
     }
 
     Map<String, ElementNode> getInterfaces(){
-        return interfaces;
+        return Collections.unmodifiableMap(interfaces);
     }
 
     Map<String, ElementNode> getOutboundSocketBindings(){
-        return outboundSocketBindings;
+        return Collections.unmodifiableMap(outboundSocketBindings);
     }
 
     void parse() throws IOException, XMLStreamException {
         try (InputStream in = inputStreamSource.getInputStream()) {
-            XMLInputFactory factory = XMLInputFactory.newInstance();
-            factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
-            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            XMLStreamReader reader = XMLStreamFactories.createReader(in);
 
             reader.require(START_DOCUMENT, null, null);
             Map<String, String> configAttributes = new HashMap<String, String>();
@@ -19,8 +19,8 @@ import org.wildfly.build.util.BuildPropertyReplacer;
 import org.wildfly.build.util.InputStreamSource;
 import org.wildfly.build.util.MapPropertyResolver;
 import org.wildfly.build.util.PropertyResolver;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
@@ -51,7 +51,7 @@ public class SubsystemsParser {
 
     public static void parse(InputStreamSource inputStreamSource, BuildPropertyReplacer propertyReplacer, Map<String, Map<String, SubsystemConfig>> result) throws IOException, XMLStreamException {
         try (InputStream in = inputStreamSource.getInputStream()) {
-            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+            XMLStreamReader reader = XMLStreamFactories.createReader(in);
             reader.require(START_DOCUMENT, null, null);
             boolean done = false;
             while (reader.hasNext()) {
@@ -20,8 +20,8 @@ import org.wildfly.build.util.xml.ElementNode;
 import org.wildfly.build.util.xml.NodeParser;
 import org.wildfly.build.util.xml.ParsingUtils;
 import org.wildfly.build.util.xml.ProcessingInstructionNode;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
@@ -78,9 +78,7 @@ public class TemplateParser extends NodeParser {
 
     public void parse() throws IOException, XMLStreamException {
         try (InputStream in = inputStreamSource.getInputStream()) {
-            XMLInputFactory factory = XMLInputFactory.newInstance();
-            factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
-            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            XMLStreamReader reader = XMLStreamFactories.createReader(in);
 
             reader.require(START_DOCUMENT, null, null);
             ParsingUtils.getNextElement(reader, rootElementName, null, false);
@@ -18,9 +18,14 @@ package org.wildfly.build.logger;
 
 import org.jboss.logging.BasicLogger;
 import org.jboss.logging.Logger;
+import org.jboss.logging.annotations.LogMessage;
 import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageLogger;
 
+import java.io.File;
+
+import static org.jboss.logging.Logger.Level.INFO;
+
 /**
  * @author Stuart Douglas
  */
@@ -31,4 +36,12 @@ public interface ProvisioningLogger extends BasicLogger {
 
     @Message("Cannot parse artifact spec %s")
     RuntimeException cannotParseArtifact(String artifact);
+
+    @LogMessage(level = INFO)
+    @Message("Provisioning phase %s took %d ms, created %d files, read %d bytes, wrote %d bytes, opened %d archives")
+    void provisioningPhaseMetrics(String phase, long time, long filesCreated, long bytesRead, long bytesWritten, long archiveOpens);
+
+    @LogMessage(level = INFO)
+    @Message("Provisioned server %s in %d ms, metrics report written to %s")
+    void provisioningMetrics(File server, long time, File reportFile);
 }
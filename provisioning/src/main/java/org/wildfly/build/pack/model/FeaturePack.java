@@ -22,15 +22,15 @@ import org.wildfly.build.common.model.ConfigFile;
 import org.wildfly.build.configassembly.SubsystemConfig;
 import org.wildfly.build.util.ModuleParseResult;
 import org.wildfly.build.util.ModuleParser;
+import org.wildfly.build.util.ZipFileCache;
 import org.wildfly.build.util.ZipFileSubsystemInputStreamSources;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -108,12 +108,15 @@ public class FeaturePack {
 
     private Map<ModuleIdentifier, Module> featurePackAndDependenciesModules;
 
+    private ModuleGraph moduleGraph;
+
     private static final String MODULE_XML_ENTRY_NAME_SUFIX = "/module.xml";
 
     public synchronized Map<ModuleIdentifier, Module> getFeaturePackModules() {
         if (featurePackModules == null) {
             featurePackModules = new HashMap<>();
-            try (JarFile jar = new JarFile(featurePackFile)) {
+            try (ZipFileCache.Ref ref = ZipFileCache.getInstance().open(featurePackFile)) {
+                final JarFile jar = ref.getJarFile();
                 // collect modules from entries named */module.xml
                 for (String moduleFile : modulesFiles) {
                     if (moduleFile.endsWith(MODULE_XML_ENTRY_NAME_SUFIX)) {
@@ -146,6 +149,17 @@ public class FeaturePack {
         return featurePackAndDependenciesModules;
     }
 
+    /**
+     * Retrieves the dependency graph of the modules of the feature pack and its dependencies.
+     * @return
+     */
+    public synchronized ModuleGraph getModuleGraph() {
+        if (moduleGraph == null) {
+            moduleGraph = new ModuleGraph(this, getFeaturePackAndDependenciesModules());
+        }
+        return moduleGraph;
+    }
+
     public Module getSubsystemModule(String subsystem, ArtifactFileResolver artifactFileResolver) throws IOException {
         ZipFileSubsystemInputStreamSources inputStreamSources = new ZipFileSubsystemInputStreamSources();
         for(Module module : getFeaturePackAndDependenciesModules().values()) {
@@ -252,25 +266,11 @@ public class FeaturePack {
          * @return
          */
         public Map<ModuleIdentifier, Module> getDependencies() {
-            Map<ModuleIdentifier, Module> featurePackAndDependenciesModules = featurePack.getFeaturePackAndDependenciesModules();
-            Map<ModuleIdentifier, Module> result = new HashMap<>();
-            Deque<ModuleParseResult.ModuleDependency> remaining = new ArrayDeque<>(moduleParseResult.getDependencies());
-            while (!remaining.isEmpty()) {
-                ModuleParseResult.ModuleDependency moduleDependency = remaining.pop();
-                ModuleIdentifier moduleIdentifier = moduleDependency.getModuleId();
-                Module module = featurePackAndDependenciesModules.get(moduleIdentifier);
-                if (module == null) {
-                    if (!moduleDependency.isOptional()) {
-                        throw new IllegalStateException("Module " + moduleIdentifier + " not found in feature pack " + featurePack + " and dependencies");
-                    }
-                } else {
-                    if (!result.containsKey(moduleIdentifier)) {
-                        result.put(moduleIdentifier, module);
-                        remaining.addAll(module.getModuleParseResult().getDependencies());
-                    }
-                }
-            }
-            return result;
+            // the module's own feature pack modules have priority, thus it's always found in the pack's graph
+            final ModuleGraph moduleGraph = featurePack.getModuleGraph();
+            final BitSet dependencies = new BitSet(moduleGraph.size());
+            moduleGraph.addDependencies(moduleGraph.indexOf(getIdentifier()), dependencies);
+            return moduleGraph.getModules(dependencies);
         }
     }
 }
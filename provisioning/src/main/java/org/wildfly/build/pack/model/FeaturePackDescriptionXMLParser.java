@@ -18,9 +18,9 @@ package org.wildfly.build.pack.model;
 
 import org.jboss.staxmapper.XMLMapper;
 import org.wildfly.build.util.PropertyResolver;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
@@ -33,8 +33,6 @@ public class FeaturePackDescriptionXMLParser {
     private static final QName ROOT_1_0 = new QName(FeaturePackDescriptionXMLParser10.NAMESPACE_1_0, FeaturePackDescriptionXMLParser10.Element.FEATURE_PACK.getLocalName());
     private static final QName ROOT_1_1 = new QName(FeaturePackDescriptionXMLParser11.NAMESPACE_1_1, FeaturePackDescriptionXMLParser10.Element.FEATURE_PACK.getLocalName());
 
-    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
-
     private final XMLMapper mapper;
 
     public FeaturePackDescriptionXMLParser(PropertyResolver properties) {
@@ -44,19 +42,10 @@ public class FeaturePackDescriptionXMLParser {
     }
 
     public FeaturePackDescription parse(final InputStream input) throws XMLStreamException {
-        final XMLInputFactory inputFactory = INPUT_FACTORY;
-        setIfSupported(inputFactory, XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
-        setIfSupported(inputFactory, XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
-        final XMLStreamReader streamReader = inputFactory.createXMLStreamReader(input);
+        final XMLStreamReader streamReader = XMLStreamFactories.createDescriptionReader(input);
         FeaturePackDescription featurePackDescription = new FeaturePackDescription();
         mapper.parseDocument(featurePackDescription, streamReader);
         return featurePackDescription;
     }
 
-    private void setIfSupported(final XMLInputFactory inputFactory, final String property, final Object value) {
-        if (inputFactory.isPropertySupported(property)) {
-            inputFactory.setProperty(property, value);
-        }
-    }
-
 }
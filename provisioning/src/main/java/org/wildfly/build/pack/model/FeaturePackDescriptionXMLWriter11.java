@@ -21,13 +21,12 @@ import org.wildfly.build.common.model.FilePermissionsXMLWriter10;
 import org.wildfly.build.util.xml.AttributeValue;
 import org.wildfly.build.util.xml.ElementNode;
 import org.wildfly.build.util.xml.FormattingXMLStreamWriter;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Set;
 
@@ -47,17 +46,31 @@ public class FeaturePackDescriptionXMLWriter11 {
     }
 
     public void write(FeaturePackDescription featurePackDescription, File outputFile) throws XMLStreamException, IOException {
-        final ElementNode featurePackElementNode = new ElementNode(null, Element.FEATURE_PACK.getLocalName(), FeaturePackDescriptionXMLParser11.NAMESPACE_1_1);
-        processDependencies(featurePackDescription.getDependencies(), featurePackElementNode);
-        processArtifactVersions(featurePackDescription.getArtifactVersions(), featurePackElementNode);
-        ConfigXMLWriter11.INSTANCE.write(featurePackDescription.getConfig(), featurePackElementNode);
-        CopyArtifactsXMLWriter10.INSTANCE.write(featurePackDescription.getCopyArtifacts(), featurePackElementNode);
-        FilePermissionsXMLWriter10.INSTANCE.write(featurePackDescription.getFilePermissions(), featurePackElementNode);
-        FormattingXMLStreamWriter writer = new FormattingXMLStreamWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(new BufferedWriter(new FileWriter(outputFile))));
+        write(featurePackDescription, FormattingXMLStreamWriter.create(outputFile));
+    }
+
+    /**
+     * Writes the description, UTF-8 encoded, to the specified stream, which is not closed.
+     * @param featurePackDescription
+     * @param out
+     * @throws XMLStreamException
+     */
+    public void write(FeaturePackDescription featurePackDescription, OutputStream out) throws XMLStreamException {
+        write(featurePackDescription, new FormattingXMLStreamWriter(XMLStreamFactories.createWriter(out, "UTF-8")));
+    }
+
+    private void write(FeaturePackDescription featurePackDescription, FormattingXMLStreamWriter writer) throws XMLStreamException {
         try {
+            final ElementNode featurePackElementNode = new ElementNode(null, Element.FEATURE_PACK.getLocalName(), FeaturePackDescriptionXMLParser11.NAMESPACE_1_1);
+            processDependencies(featurePackDescription.getDependencies(), featurePackElementNode);
+            processArtifactVersions(featurePackDescription.getArtifactVersions(), featurePackElementNode);
+            ConfigXMLWriter11.INSTANCE.write(featurePackDescription.getConfig(), featurePackElementNode);
+            CopyArtifactsXMLWriter10.INSTANCE.write(featurePackDescription.getCopyArtifacts(), featurePackElementNode);
+            FilePermissionsXMLWriter10.INSTANCE.write(featurePackDescription.getFilePermissions(), featurePackElementNode);
             writer.writeStartDocument();
             featurePackElementNode.marshall(writer);
             writer.writeEndDocument();
+            writer.flush();
         } finally {
             try {
                 writer.close();
@@ -20,16 +20,26 @@ import org.wildfly.build.ArtifactFileResolver;
 import org.wildfly.build.ArtifactResolver;
 import org.wildfly.build.Locations;
 import org.wildfly.build.util.PropertyResolver;
+import org.wildfly.build.util.ZipFileCache;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
@@ -47,20 +57,40 @@ public class FeaturePackFactory {
     private static final String CONTENT_ENTRY_NAME_PREFIX = Locations.CONTENT + "/";
 
     public static FeaturePack createPack(final Artifact artifactCoords, final ArtifactFileResolver artifactFileResolver, ArtifactResolver versionOverrideResolver) {
-        return createPack(artifactCoords, artifactFileResolver, versionOverrideResolver, new HashSet<Artifact>());
+        return createPacks(Collections.singletonList(artifactCoords), artifactFileResolver, versionOverrideResolver, null).get(0);
     }
 
     /**
-     *
+     * Creates feature packs, and their dependencies. The dependency graph is shared by all feature packs, i.e. each
+     * feature pack is loaded once, no matter how many feature packs depend on it, and feature packs which do not
+     * depend on each other are loaded concurrently.
+     * @param artifactCoords the coordinates of the feature pack artifacts
+     * @param artifactFileResolver the artifact -> artifact file resolver
+     * @param versionOverrideResolver
+     * @param executor the executor which loads the feature packs, if null they are loaded by the calling thread
+     * @return the feature packs, in the order of their coordinates
+     */
+    public static List<FeaturePack> createPacks(final List<Artifact> artifactCoords, final ArtifactFileResolver artifactFileResolver, ArtifactResolver versionOverrideResolver, Executor executor) {
+        final FeaturePackGraph graph = new FeaturePackGraph(artifactFileResolver, versionOverrideResolver, executor);
+        for (Artifact artifact : artifactCoords) {
+            graph.load(artifact);
+        }
+        graph.awaitLoaded();
+        final List<FeaturePack> featurePacks = new ArrayList<>();
+        for (Artifact artifact : artifactCoords) {
+            featurePacks.add(graph.createPack(artifact, new LinkedHashSet<Artifact>()));
+        }
+        return featurePacks;
+    }
+
+    /**
+     * Loads a feature pack, i.e. lists its files and parses its description, and starts the loading of its dependencies.
      * @param artifactCoords the coordinates of the feature pack artifact
      * @param artifactFileResolver the artifact -> artifact file resolver
-     * @param processedFeaturePacks a set containing all parent feature packs, useful to detect cyclic dependencies
+     * @param graph the dependency graph being loaded
      * @return
      */
-    private static FeaturePack createPack(final Artifact artifactCoords, final ArtifactFileResolver artifactFileResolver, ArtifactResolver versionOverrideResolver, Set<Artifact> processedFeaturePacks) {
-        if (!processedFeaturePacks.add(artifactCoords)) {
-            throw new IllegalStateException("Cyclic dependency, feature pack "+artifactCoords+" already processed! Feature packs: "+processedFeaturePacks);
-        }
+    private static LoadedFeaturePack loadPack(final Artifact artifactCoords, final ArtifactFileResolver artifactFileResolver, ArtifactResolver versionOverrideResolver, FeaturePackGraph graph) {
         // resolve feature pack artifact
         // resolve feature pack artifact file
         File artifactFile = artifactFileResolver.getArtifactFile(artifactCoords);
@@ -68,7 +98,8 @@ public class FeaturePackFactory {
             throw new RuntimeException("Could not resolve artifact file for feature package  " + artifactCoords);
         }
         // process the artifact file
-        try(JarFile jar = new JarFile(artifactFile)) {
+        try(ZipFileCache.Ref ref = ZipFileCache.getInstance().open(artifactFile)) {
+            final JarFile jar = ref.getJarFile();
             // create list of files in the artifact file
             final List<String> configurationFiles = new ArrayList<>();
             final List<String> modulesFiles = new ArrayList<>();
@@ -90,17 +121,18 @@ public class FeaturePackFactory {
             // create feature pack artifact resolver
             final FeaturePackArtifactResolver featurePackArtifactResolver = new FeaturePackArtifactResolver(description.getArtifactVersions());
             final ArtifactResolver artifactResolver = versionOverrideResolver == null ? featurePackArtifactResolver : new DelegatingArtifactResolver(versionOverrideResolver, featurePackArtifactResolver);
-            // create dependencies feature packs
-            final List<FeaturePack> dependencies = new ArrayList<>();
+            // load dependencies feature packs
+            final List<Artifact> dependencies = new ArrayList<>();
             for (String dependency : description.getDependencies()) {
                 Artifact artifact = Artifact.parse(dependency);
                 if(artifact.getPackaging() == null) {
                     artifact = new Artifact(artifact.getGroupId(), artifact.getArtifactId(), "zip", artifact.getClassifier(), artifact.getVersion());
                 }
                 Artifact dependencyArtifact = artifactResolver.getArtifact(artifact);
-                dependencies.add(createPack(dependencyArtifact, artifactFileResolver, versionOverrideResolver, new HashSet<>(processedFeaturePacks)));
+                dependencies.add(dependencyArtifact);
+                graph.load(dependencyArtifact);
             }
-            return new FeaturePack(artifactFile, artifactCoords, description, dependencies, artifactResolver, configurationFiles, modulesFiles, contentFiles);
+            return new LoadedFeaturePack(artifactFile, description, dependencies, artifactResolver, configurationFiles, modulesFiles, contentFiles);
         } catch (Throwable e) {
             throw new RuntimeException("Failed to create feature pack from " + artifactCoords, e);
         }
@@ -116,4 +148,129 @@ public class FeaturePackFactory {
             return parser.parse(inputStream);
         }
     }
+
+    /**
+     * The feature pack dependency graph, loaded by a single call to createPacks. Each feature pack is loaded once, by a
+     * task keyed by its coordinates, which does not wait for its dependencies' tasks, but only submits them, so that
+     * loading can not deadlock, even with cyclic dependencies. Once all tasks are done the feature packs are created,
+     * by the calling thread, which detects cyclic dependencies.
+     */
+    private static class FeaturePackGraph {
+
+        private final ArtifactFileResolver artifactFileResolver;
+        private final ArtifactResolver versionOverrideResolver;
+        private final Executor executor;
+        private final ConcurrentMap<Artifact, FutureTask<LoadedFeaturePack>> loadedFeaturePacks = new ConcurrentHashMap<>();
+        private final Map<Artifact, FeaturePack> featurePacks = new HashMap<>();
+
+        private FeaturePackGraph(ArtifactFileResolver artifactFileResolver, ArtifactResolver versionOverrideResolver, Executor executor) {
+            this.artifactFileResolver = artifactFileResolver;
+            this.versionOverrideResolver = versionOverrideResolver;
+            this.executor = executor;
+        }
+
+        /**
+         * Starts loading a feature pack, unless already loading or loaded.
+         * @param artifactCoords
+         */
+        private void load(final Artifact artifactCoords) {
+            if (loadedFeaturePacks.containsKey(artifactCoords)) {
+                return;
+            }
+            final FutureTask<LoadedFeaturePack> task = new FutureTask<>(new Callable<LoadedFeaturePack>() {
+                @Override
+                public LoadedFeaturePack call() throws Exception {
+                    return loadPack(artifactCoords, artifactFileResolver, versionOverrideResolver, FeaturePackGraph.this);
+                }
+            });
+            if (loadedFeaturePacks.putIfAbsent(artifactCoords, task) == null) {
+                if (executor == null) {
+                    task.run();
+                } else {
+                    executor.execute(task);
+                }
+            }
+        }
+
+        /**
+         * Waits until all feature packs, including the dependencies found meanwhile, are loaded.
+         */
+        private void awaitLoaded() {
+            List<FutureTask<LoadedFeaturePack>> tasks;
+            do {
+                tasks = new ArrayList<>(loadedFeaturePacks.values());
+                for (FutureTask<LoadedFeaturePack> task : tasks) {
+                    getLoadedFeaturePack(task);
+                }
+                // a task submits its dependencies before completing, thus if there are no new tasks all are done
+            } while (loadedFeaturePacks.size() != tasks.size());
+        }
+
+        /**
+         * Creates a loaded feature pack, and its dependencies.
+         * @param artifactCoords the coordinates of the feature pack artifact
+         * @param processedFeaturePacks a set containing all parent feature packs, useful to detect cyclic dependencies
+         * @return
+         */
+        private FeaturePack createPack(Artifact artifactCoords, Set<Artifact> processedFeaturePacks) {
+            FeaturePack featurePack = featurePacks.get(artifactCoords);
+            if (featurePack != null) {
+                return featurePack;
+            }
+            if (!processedFeaturePacks.add(artifactCoords)) {
+                throw new IllegalStateException("Cyclic dependency, feature pack "+artifactCoords+" already processed! Feature packs: "+processedFeaturePacks);
+            }
+            final LoadedFeaturePack loadedFeaturePack = getLoadedFeaturePack(loadedFeaturePacks.get(artifactCoords));
+            final List<FeaturePack> dependencies = new ArrayList<>();
+            for (Artifact dependency : loadedFeaturePack.dependencies) {
+                dependencies.add(createPack(dependency, processedFeaturePacks));
+            }
+            processedFeaturePacks.remove(artifactCoords);
+            featurePack = new FeaturePack(loadedFeaturePack.artifactFile, artifactCoords, loadedFeaturePack.description, dependencies, loadedFeaturePack.artifactResolver, loadedFeaturePack.configurationFiles, loadedFeaturePack.modulesFiles, loadedFeaturePack.contentFiles);
+            featurePacks.put(artifactCoords, featurePack);
+            return featurePack;
+        }
+
+        private static LoadedFeaturePack getLoadedFeaturePack(FutureTask<LoadedFeaturePack> task) {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while loading feature packs", e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    /**
+     * A feature pack's files and description, with the resolved coordinates of its dependencies.
+     */
+    private static class LoadedFeaturePack {
+
+        private final File artifactFile;
+        private final FeaturePackDescription description;
+        private final List<Artifact> dependencies;
+        private final ArtifactResolver artifactResolver;
+        private final List<String> configurationFiles;
+        private final List<String> modulesFiles;
+        private final List<String> contentFiles;
+
+        private LoadedFeaturePack(File artifactFile, FeaturePackDescription description, List<Artifact> dependencies, ArtifactResolver artifactResolver, List<String> configurationFiles, List<String> modulesFiles, List<String> contentFiles) {
+            this.artifactFile = artifactFile;
+            this.description = description;
+            this.dependencies = dependencies;
+            this.artifactResolver = artifactResolver;
+            this.configurationFiles = configurationFiles;
+            this.modulesFiles = modulesFiles;
+            this.contentFiles = contentFiles;
+        }
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.pack.model;
+
+import org.wildfly.build.util.ModuleParseResult;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The dependency graph of the modules of a feature pack and its dependencies, i.e. of the modules returned by
+ * {@link FeaturePack#getFeaturePackAndDependenciesModules()}. Each module has an index, and sets of modules are bit
+ * sets of indexes, so that selecting modules, and their dependencies, is set arithmetic. The transitive dependencies
+ * of a module are computed once, on first use, reusing those already computed for the modules it depends on.
+ *
+ * This class is thread safe.
+ */
+public class ModuleGraph {
+
+    private final FeaturePack featurePack;
+    private final FeaturePack.Module[] modules;
+    private final Map<ModuleIdentifier, Integer> indexes;
+    /**
+     * the indexes of each module's direct dependencies
+     */
+    private final int[][] dependencies;
+    /**
+     * the first non optional dependency of each module which is not found, if any
+     */
+    private final ModuleIdentifier[] missingDependencies;
+    /**
+     * the transitive dependencies of each module, once computed
+     */
+    private final BitSet[] transitiveDependencies;
+
+    ModuleGraph(FeaturePack featurePack, Map<ModuleIdentifier, FeaturePack.Module> featurePackAndDependenciesModules) {
+        this.featurePack = featurePack;
+        final int size = featurePackAndDependenciesModules.size();
+        this.modules = new FeaturePack.Module[size];
+        this.indexes = new HashMap<>(size * 4 / 3 + 1);
+        int index = 0;
+        for (Map.Entry<ModuleIdentifier, FeaturePack.Module> entry : featurePackAndDependenciesModules.entrySet()) {
+            modules[index] = entry.getValue();
+            indexes.put(entry.getKey(), index);
+            index++;
+        }
+        this.dependencies = new int[size][];
+        this.missingDependencies = new ModuleIdentifier[size];
+        this.transitiveDependencies = new BitSet[size];
+        for (int i = 0; i < size; i++) {
+            final List<ModuleParseResult.ModuleDependency> moduleDependencies = modules[i].getModuleParseResult().getDependencies();
+            final int[] moduleDependencyIndexes = new int[moduleDependencies.size()];
+            int count = 0;
+            for (ModuleParseResult.ModuleDependency moduleDependency : moduleDependencies) {
+                final Integer dependencyIndex = indexes.get(moduleDependency.getModuleId());
+                if (dependencyIndex != null) {
+                    moduleDependencyIndexes[count++] = dependencyIndex;
+                } else if (!moduleDependency.isOptional() && missingDependencies[i] == null) {
+                    missingDependencies[i] = moduleDependency.getModuleId();
+                }
+            }
+            dependencies[i] = count == moduleDependencyIndexes.length ? moduleDependencyIndexes : Arrays.copyOf(moduleDependencyIndexes, count);
+        }
+    }
+
+    /**
+     *
+     * @return the number of modules in the graph
+     */
+    public int size() {
+        return modules.length;
+    }
+
+    /**
+     *
+     * @param moduleIdentifier
+     * @return the index of the module with the specified identifier, -1 if not in the graph
+     */
+    public int indexOf(ModuleIdentifier moduleIdentifier) {
+        final Integer index = indexes.get(moduleIdentifier);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     *
+     * @param index
+     * @return the module with the specified index
+     */
+    public FeaturePack.Module getModule(int index) {
+        return modules[index];
+    }
+
+    /**
+     * Adds the full set of modules which a module directly and indirectly depends.
+     * @param index the module's index
+     * @param result the set where the modules' indexes are added
+     * @throws IllegalStateException if a non optional dependency is not found
+     */
+    public void addDependencies(int index, BitSet result) {
+        result.or(getTransitiveDependencies(index));
+    }
+
+    /**
+     *
+     * @param indexes
+     * @return the modules with the specified indexes
+     */
+    public Map<ModuleIdentifier, FeaturePack.Module> getModules(BitSet indexes) {
+        final Map<ModuleIdentifier, FeaturePack.Module> result = new HashMap<>(indexes.cardinality() * 4 / 3 + 1);
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            result.put(modules[i].getIdentifier(), modules[i]);
+        }
+        return result;
+    }
+
+    private synchronized BitSet getTransitiveDependencies(int index) {
+        BitSet result = transitiveDependencies[index];
+        if (result != null) {
+            return result;
+        }
+        result = new BitSet(modules.length);
+        final Deque<Integer> remaining = new ArrayDeque<>();
+        remaining.add(index);
+        boolean first = true;
+        while (!remaining.isEmpty()) {
+            final int module = remaining.pop();
+            if (!first && transitiveDependencies[module] != null) {
+                // the module's dependencies are known, and were all found
+                result.or(transitiveDependencies[module]);
+                continue;
+            }
+            first = false;
+            if (missingDependencies[module] != null) {
+                throw new IllegalStateException("Module " + missingDependencies[module] + " not found in feature pack " + featurePack + " and dependencies");
+            }
+            for (int dependency : dependencies[module]) {
+                if (!result.get(dependency)) {
+                    result.set(dependency);
+                    remaining.add(dependency);
+                }
+            }
+        }
+        transitiveDependencies[index] = result;
+        return result;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.build.provisioning;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Materializes artifact files in the provisioned server.
+ */
+public interface ArtifactMaterializer {
+
+    /**
+     * Materializes the specified artifact file at the specified target, replacing the target if it exists.
+     * @param artifactFile
+     * @param target
+     * @throws IOException
+     */
+    void materialize(File artifactFile, File target) throws IOException;
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.build.provisioning;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An artifact materializer which first adds each artifact file to a store, keyed by the artifact's SHA-1 checksum, and
+ * then materializes the stored file with a {@link MaterializationStrategy}. Servers provisioned with a linking strategy
+ * then share a single copy of each distinct artifact, which is not affected by later changes to the artifact repository.
+ *
+ * The store may be shared by concurrent provisioning runs. This class is thread safe.
+ */
+public class ContentAddressedArtifactStore implements ArtifactMaterializer {
+
+    private final File storeDirectory;
+    private final MaterializationStrategy strategy;
+    private final Map<String, File> storedFiles = new ConcurrentHashMap<>();
+
+    public ContentAddressedArtifactStore(File storeDirectory, MaterializationStrategy strategy) {
+        this.storeDirectory = storeDirectory.getAbsoluteFile();
+        this.strategy = strategy;
+    }
+
+    @Override
+    public void materialize(File artifactFile, File target) throws IOException {
+        strategy.materialize(getStoredFile(artifactFile), target);
+    }
+
+    /**
+     * Retrieves the store's file with the content of the specified artifact file, adding it to the store if needed.
+     * @param artifactFile
+     * @return
+     * @throws IOException
+     */
+    public File getStoredFile(File artifactFile) throws IOException {
+        // the checksum is computed once per artifact file and state
+        final String key = artifactFile.getAbsolutePath() + ":" + artifactFile.length() + ":" + artifactFile.lastModified();
+        File storedFile = storedFiles.get(key);
+        if (storedFile == null) {
+            final String checksum = checksum(artifactFile);
+            storedFile = new File(new File(storeDirectory, checksum.substring(0, 2)), checksum);
+            if (!storedFile.isFile()) {
+                store(artifactFile, storedFile.toPath());
+            }
+            storedFiles.put(key, storedFile);
+        }
+        return storedFile;
+    }
+
+    private static void store(File artifactFile, Path storedFile) throws IOException {
+        Files.createDirectories(storedFile.getParent());
+        // copy to a temp file in the store and then move it, so that no partial file is ever visible
+        final Path tempFile = Files.createTempFile(storedFile.getParent(), storedFile.getFileName().toString(), ".tmp");
+        try {
+            Files.copy(artifactFile.toPath(), tempFile, StandardCopyOption.REPLACE_EXISTING);
+            // temp files are created owner only, the stored file, and the files linked to it, should be as readable as the artifact file
+            final PosixFileAttributeView view = Files.getFileAttributeView(artifactFile.toPath(), PosixFileAttributeView.class);
+            if (view != null) {
+                Files.setPosixFilePermissions(tempFile, view.readAttributes().permissions());
+            }
+            try {
+                Files.move(tempFile, storedFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, storedFile);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // stored concurrently by another run
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Computes the SHA-1 checksum of the specified file.
+     * @param file
+     * @return the checksum, as a lowercase hex string
+     * @throws IOException
+     */
+    static String checksum(File file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[65536];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.provisioning;
+
+import org.jboss.logging.Logger;
+import org.wildfly.build.common.model.FilePermission;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The file permissions of multiple feature packs, merged into a single ordered rule set, which is applied with a single
+ * walk of the server's file tree. The result is the same as when each top level feature pack's permissions were applied,
+ * with a walk of the whole tree, right after its content was extracted:
+ * <ul>
+ *     <li>the last permission which includes a file is the one set;</li>
+ *     <li>a feature pack's permissions only apply to the files already there when its content was extracted, i.e.
+ *     not to the files provided by the following feature packs.</li>
+ * </ul>
+ * Files are attributed to the feature pack which provided them, directories to the first feature pack which provided
+ * a file in them, and any other file, e.g. already in the server's dir, is there before all feature packs.
+ *
+ * Linked files, i.e. symbolic links and files with multiple hard links, such as artifacts materialized by a linking
+ * strategy, are skipped, since setting their permissions would change the artifact store's or repository's file.
+ */
+class FilePermissionRules {
+
+    private static final Logger logger = Logger.getLogger(FilePermissionRules.class);
+
+    private final List<Rule> rules = new ArrayList<>();
+    /**
+     * the index of the feature pack which provided each file and directory, paths not found are there before all feature packs
+     */
+    private final Map<String, Integer> pathFeaturePacks = new HashMap<>();
+    private int featurePack;
+
+    /**
+     * Starts the next top level feature pack, whose permissions and files are then added.
+     */
+    void nextFeaturePack() {
+        featurePack++;
+    }
+
+    /**
+     * Adds a permission of the current feature pack, or of one of its dependencies, after the ones already added.
+     * @param filePermission
+     */
+    void addFilePermission(FilePermission filePermission) {
+        if (filePermission.getFilters().isEmpty()) {
+            return;
+        }
+        // a repeated permission, e.g. from a shared dependency, only matters at its last position
+        for (Iterator<Rule> it = rules.iterator(); it.hasNext(); ) {
+            if (it.next().filePermission == filePermission) {
+                it.remove();
+            }
+        }
+        rules.add(new Rule(filePermission, featurePack));
+    }
+
+    /**
+     * Adds the files provided by the current feature pack, i.e. all the specified files not already added, and their parent dirs.
+     * @param files the files, relative to the server's base dir
+     */
+    void addFiles(Collection<String> files) {
+        for (String file : files) {
+            String path = file;
+            while (pathFeaturePacks.get(path) == null) {
+                pathFeaturePacks.put(path, featurePack);
+                final int index = path.lastIndexOf('/');
+                if (index == -1) {
+                    break;
+                }
+                path = path.substring(0, index);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the permission of the specified path.
+     * @param path the path, relative to the server's base dir
+     * @return the permission which should be set, null if none
+     */
+    Set<PosixFilePermission> getPermission(String path) {
+        final Integer pathFeaturePack = pathFeaturePacks.get(path);
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            final Rule rule = rules.get(i);
+            if (pathFeaturePack != null && rule.featurePack < pathFeaturePack) {
+                // the path was not there yet when the rule's feature pack was processed
+                return null;
+            }
+            if (rule.filePermission.includeFile(path)) {
+                return rule.filePermission.getPermission();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the permissions of all files and directories in the specified base dir.
+     * @param baseDir
+     * @throws IOException
+     */
+    void apply(final Path baseDir) throws IOException {
+        if (rules.isEmpty()) {
+            return;
+        }
+        Files.walkFileTree(baseDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                setPermission(baseDir, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isSymbolicLink() || isHardLinked(file)) {
+                    logger.debugf("Not setting the permissions of linked file %s", file);
+                } else {
+                    setPermission(baseDir, file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean isHardLinked(Path file) throws IOException {
+        try {
+            return ((Number) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS)).intValue() > 1;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // no unix attributes view
+            return false;
+        }
+    }
+
+    private void setPermission(Path baseDir, Path path) throws IOException {
+        final Set<PosixFilePermission> permission = getPermission(baseDir.relativize(path).toString());
+        if (permission != null) {
+            Files.setPosixFilePermissions(path, permission);
+        }
+    }
+
+    private static class Rule {
+
+        private final FilePermission filePermission;
+        private final int featurePack;
+
+        private Rule(FilePermission filePermission, int featurePack) {
+            this.filePermission = filePermission;
+            this.featurePack = featurePack;
+        }
+    }
+}
@@ -16,12 +16,20 @@
 
 package org.wildfly.build.provisioning;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
@@ -30,23 +38,85 @@ import org.jboss.jandex.Index;
 import org.jboss.jandex.IndexWriter;
 import org.jboss.jandex.Indexer;
 import org.jboss.logging.Logger;
+import org.wildfly.build.util.ZipFileCache;
 
 /**
+ * Creates the Jandex index jars of module artifacts with the jandex option. An indexer with a cache directory reuses
+ * the indexes created by previous runs, which are keyed by the artifact's checksum and the Jandex version.
+ *
+ * This class is thread safe.
+ *
  * @author Stuart Douglas
  */
 public class JandexIndexer {
 
     private static final Logger log = Logger.getLogger(JandexIndexer.class);
 
-    public static void createIndex(File jarFile, OutputStream target) throws IOException {
-        ZipOutputStream zo;
+    private static final String INDEX_ENTRY_NAME = "META-INF/jandex.idx";
 
-        Indexer indexer = new Indexer();
+    private static final String JANDEX_VERSION = Indexer.class.getPackage().getImplementationVersion();
 
-        JarFile jar = new JarFile(jarFile);
+    private final File cacheDirectory;
 
-        zo = new ZipOutputStream(target);
+    /**
+     *
+     * @param cacheDirectory the directory where indexes are cached, if null (or if the Jandex version is unknown) indexes are not cached
+     */
+    public JandexIndexer(File cacheDirectory) {
+        if (cacheDirectory != null && JANDEX_VERSION == null) {
+            log.debugf("Unknown Jandex version, indexes will not be cached in %s", cacheDirectory);
+        }
+        this.cacheDirectory = cacheDirectory != null && JANDEX_VERSION != null ? new File(cacheDirectory, JANDEX_VERSION).getAbsoluteFile() : null;
+    }
+
+    /**
+     * Creates a jar with the Jandex index of the specified jar file.
+     * @param jarFile
+     * @param target the index jar file
+     * @throws IOException
+     */
+    public void createIndexJar(File jarFile, File target) throws IOException {
+        final long start = System.nanoTime();
+        byte[] index = null;
+        File cachedIndexFile = null;
+        if (cacheDirectory != null) {
+            final String checksum = ContentAddressedArtifactStore.checksum(jarFile);
+            cachedIndexFile = new File(new File(cacheDirectory, checksum.substring(0, 2)), checksum + ".idx");
+            if (cachedIndexFile.isFile()) {
+                index = Files.readAllBytes(cachedIndexFile.toPath());
+            }
+        }
+        final boolean cached = index != null;
+        if (!cached) {
+            index = index(jarFile);
+            if (cachedIndexFile != null) {
+                storeCachedIndex(index, cachedIndexFile.toPath());
+            }
+        }
+        try (OutputStream out = new FileOutputStream(target)) {
+            writeIndexJar(index, out);
+        }
+        log.debugf("%s Jandex index of %s in %d ms", cached ? "Reused cached" : "Created", jarFile, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    public static void createIndex(File jarFile, OutputStream target) throws IOException {
         try {
+            writeIndexJar(index(jarFile), target);
+        } finally {
+            safeClose(target);
+        }
+    }
+
+    /**
+     * Indexes all classes in the specified jar file.
+     * @param jarFile
+     * @return the serialized index
+     * @throws IOException
+     */
+    private static byte[] index(File jarFile) throws IOException {
+        Indexer indexer = new Indexer();
+        try (ZipFileCache.Ref ref = ZipFileCache.getInstance().open(jarFile)) {
+            final JarFile jar = ref.getJarFile();
             Enumeration<JarEntry> entries = jar.entries();
             while (entries.hasMoreElements()) {
                 JarEntry entry = entries.nextElement();
@@ -65,20 +135,40 @@ public class JandexIndexer {
                     }
                 }
             }
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IndexWriter writer = new IndexWriter(out);
+        Index index = indexer.complete();
+        writer.write(index);
+        return out.toByteArray();
+    }
 
-            zo.putNextEntry(new ZipEntry("META-INF/jandex.idx"));
+    private static void writeIndexJar(byte[] index, OutputStream target) throws IOException {
+        ZipOutputStream zo = new ZipOutputStream(target);
+        zo.putNextEntry(new ZipEntry(INDEX_ENTRY_NAME));
+        zo.write(index);
+        zo.closeEntry();
+        zo.finish();
+    }
 
-            IndexWriter writer = new IndexWriter(zo);
-            Index index = indexer.complete();
-            writer.write(index);
+    private static void storeCachedIndex(byte[] index, Path cachedIndexFile) throws IOException {
+        Files.createDirectories(cachedIndexFile.getParent());
+        // write to a temp file and then move it, so that concurrent runs never read a partial index
+        final Path tempFile = Files.createTempFile(cachedIndexFile.getParent(), cachedIndexFile.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempFile, index);
+            try {
+                Files.move(tempFile, cachedIndexFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, cachedIndexFile);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // cached concurrently by another run
         } finally {
-            safeClose(zo);
-            safeClose(jar);
-            safeClose(target);
+            Files.deleteIfExists(tempFile);
         }
     }
 
-
     private static void safeClose(Closeable closeable) {
         if (closeable != null) {
             try {
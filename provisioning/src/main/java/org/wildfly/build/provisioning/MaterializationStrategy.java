@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.build.provisioning;
+
+import org.jboss.logging.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The built in strategies to materialize artifacts in the provisioned server. Strategies other than copy fall back
+ * to copy where the file system does not support them.
+ *
+ * Note that linked files share their content and attributes, such as POSIX permissions, with the artifact file, thus
+ * the feature packs' file permissions are not set on linked files.
+ */
+public enum MaterializationStrategy implements ArtifactMaterializer {
+
+    COPY("copy") {
+        @Override
+        public void materialize(File artifactFile, File target) throws IOException {
+            Files.copy(artifactFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    },
+    HARD_LINK("hard-link") {
+        @Override
+        public void materialize(File artifactFile, File target) throws IOException {
+            Files.deleteIfExists(target.toPath());
+            try {
+                Files.createLink(target.toPath(), artifactFile.toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                // e.g. artifact and target in distinct file systems
+                logger.debugf(e, "Failed to hard link %s to %s, copying it instead", target, artifactFile);
+                COPY.materialize(artifactFile, target);
+            }
+        }
+    },
+    SYMBOLIC_LINK("symlink") {
+        @Override
+        public void materialize(File artifactFile, File target) throws IOException {
+            Files.deleteIfExists(target.toPath());
+            try {
+                Files.createSymbolicLink(target.toPath(), artifactFile.getAbsoluteFile().toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                logger.debugf(e, "Failed to symbolic link %s to %s, copying it instead", target, artifactFile);
+                COPY.materialize(artifactFile, target);
+            }
+        }
+    },
+    REFLINK("reflink") {
+        @Override
+        public void materialize(File artifactFile, File target) throws IOException {
+            // there is no java api for FICLONE, delegate to cp while the file system keeps supporting it
+            if (!OS_WINDOWS && reflinkSupported.get()) {
+                // cp writes through an existing target, which may be a link to the artifact file made by a previous run
+                Files.deleteIfExists(target.toPath());
+                final Process process = new ProcessBuilder("cp", "--reflink=always", artifactFile.getAbsolutePath(), target.getAbsolutePath())
+                        .redirectErrorStream(true)
+                        .start();
+                final String output;
+                try (InputStream in = process.getInputStream()) {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    final byte[] buffer = new byte[1024];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                    output = new String(out.toByteArray(), StandardCharsets.UTF_8).trim();
+                }
+                try {
+                    if (process.waitFor() == 0) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reflinking " + artifactFile, e);
+                }
+                if (reflinkSupported.compareAndSet(true, false)) {
+                    logger.debugf("Failed to reflink %s to %s, copying artifacts instead: %s", artifactFile, target, output);
+                }
+            }
+            COPY.materialize(artifactFile, target);
+        }
+    },
+    ;
+
+    private static final Logger logger = Logger.getLogger(MaterializationStrategy.class);
+
+    private static final boolean OS_WINDOWS = System.getProperty("os.name").contains("indows");
+
+    private static final AtomicBoolean reflinkSupported = new AtomicBoolean(true);
+
+    private final String name;
+
+    MaterializationStrategy(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the name of this strategy.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieves the strategy with the specified name.
+     * @param name the strategy name, if null the copy strategy is returned
+     * @return
+     * @throws IllegalArgumentException if there is no strategy with the specified name
+     */
+    public static MaterializationStrategy of(String name) {
+        if (name == null) {
+            return COPY;
+        }
+        for (MaterializationStrategy strategy : values()) {
+            if (strategy.name.equals(name)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown artifact materialization strategy " + name);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.provisioning;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+
+/**
+ * The manifest of a provisioned server, which maps each output file to the source it was created from, and is used to
+ * re-provision a server incrementally, i.e. only files whose source changed, or which were modified since, are written
+ * again, and files no longer provisioned are removed.
+ *
+ * This class is thread safe.
+ */
+public class ProvisioningManifest {
+
+    /**
+     * the source of files generated by the provisioner, such as config files, which are always written
+     */
+    public static final String GENERATED = "generated";
+
+    private static final char SEPARATOR = '\t';
+
+    private final Map<String, Entry> previousEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private ProvisioningManifest(Map<String, Entry> previousEntries) {
+        this.previousEntries = previousEntries;
+    }
+
+    /**
+     * Creates a manifest for a new provisioning run, from the manifest stored by the previous run.
+     * @param manifestFile the previous run manifest file, which may not exist
+     * @return
+     * @throws IOException
+     */
+    public static ProvisioningManifest load(File manifestFile) throws IOException {
+        final Map<String, Entry> previousEntries = new TreeMap<>();
+        if (manifestFile.isFile()) {
+            try (BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // path, size, last modified, source
+                    final String[] split = line.split(String.valueOf(SEPARATOR), 4);
+                    if (split.length != 4) {
+                        throw new IOException("Invalid provisioning manifest " + manifestFile + " line: " + line);
+                    }
+                    previousEntries.put(split[0], new Entry(split[3], Long.parseLong(split[1]), Long.parseLong(split[2])));
+                }
+            }
+        }
+        return new ProvisioningManifest(previousEntries);
+    }
+
+    /**
+     *
+     * @return true if there is no previous run manifest
+     */
+    public boolean isEmpty() {
+        return previousEntries.isEmpty();
+    }
+
+    /**
+     * Checks if an output file is up to date.
+     * @param outputDirectory the server's directory
+     * @param path the output file path, relative to the server's directory
+     * @param source the file source
+     * @return true if the file was provisioned by the previous run, from the same source, and was not modified since; false otherwise
+     */
+    public boolean isUpToDate(File outputDirectory, String path, String source) {
+        if (GENERATED.equals(source)) {
+            return false;
+        }
+        final Entry previousEntry = previousEntries.get(path);
+        if (previousEntry == null || !previousEntry.source.equals(source)) {
+            return false;
+        }
+        final File file = new File(outputDirectory, path);
+        return file.isFile() && file.length() == previousEntry.size && file.lastModified() == previousEntry.lastModified;
+    }
+
+    /**
+     * Records an output file as provisioned by this run.
+     * @param outputDirectory the server's directory
+     * @param path the output file path, relative to the server's directory
+     * @param source the file source
+     */
+    public void add(File outputDirectory, String path, String source) {
+        final File file = new File(outputDirectory, path);
+        entries.put(path, new Entry(source, file.length(), file.lastModified()));
+    }
+
+    /**
+     * Retrieves the files provisioned by the previous run, which were not provisioned by this run.
+     * @return the paths of the obsolete files, relative to the server's directory
+     */
+    public List<String> getObsoleteFiles() {
+        final List<String> result = new ArrayList<>();
+        for (String path : previousEntries.keySet()) {
+            if (!entries.containsKey(path)) {
+                result.add(path);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Stores the files provisioned by this run.
+     * @param manifestFile
+     * @throws IOException
+     */
+    public void store(File manifestFile) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> mapEntry : new TreeMap<>(entries).entrySet()) {
+                final Entry entry = mapEntry.getValue();
+                writer.append(mapEntry.getKey()).append(SEPARATOR)
+                        .append(String.valueOf(entry.size)).append(SEPARATOR)
+                        .append(String.valueOf(entry.lastModified)).append(SEPARATOR)
+                        .append(entry.source);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the source of a file copied from the specified file, e.g. an artifact file.
+     * @param file
+     * @return
+     */
+    public static String fileSource(File file) {
+        return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    }
+
+    /**
+     * Retrieves the source of a file extracted from the specified zip file's entry, e.g. a feature pack content file.
+     * @param zipFile
+     * @param zipEntry
+     * @return
+     */
+    public static String zipEntrySource(File zipFile, ZipEntry zipEntry) {
+        return zipFile.getAbsolutePath() + "!" + zipEntry.getName() + ":" + zipEntry.getSize() + ":" + Long.toHexString(zipEntry.getCrc());
+    }
+
+    private static class Entry {
+
+        private final String source;
+        private final long size;
+        private final long lastModified;
+
+        private Entry(String source, long size, long lastModified) {
+            this.source = source;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.provisioning;
+
+import org.wildfly.build.logger.ProvisioningLogger;
+import org.wildfly.build.util.ZipFileCache;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of a provisioning run, i.e. the wall clock time, bytes read and written, files created and archives
+ * opened by each phase, per feature pack. Phases are expected to run one at a time, each phase's metrics are the
+ * difference between the run's counters when the phase stops and when it started, even if the phase's work is done
+ * by multiple threads.
+ *
+ * The counters are thread safe, phases are not.
+ */
+public class ProvisioningMetrics {
+
+    public enum Phase {
+
+        FEATURE_PACK_CREATION("feature-pack-creation"),
+        ARTIFACT_PREFETCH("artifact-prefetch"),
+        COPY_ARTIFACTS("copy-artifacts"),
+        MODULE_GATHERING("module-gathering"),
+        SUBSYSTEM_TEMPLATE_GATHERING("subsystem-template-gathering"),
+        MODULE_PROVISIONING("module-provisioning"),
+        CONTENT_EXTRACTION("content-extraction"),
+        FILE_PERMISSIONS("file-permissions"),
+        CONFIG_ASSEMBLY("config-assembly"),
+        ;
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong filesCreated = new AtomicLong();
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Records the creation of an output file.
+     * @param bytesRead the number of bytes read to create the file
+     * @param bytesWritten the number of bytes written to create the file
+     */
+    public void fileCreated(long bytesRead, long bytesWritten) {
+        this.bytesRead.addAndGet(bytesRead);
+        this.bytesWritten.addAndGet(bytesWritten);
+        this.filesCreated.incrementAndGet();
+    }
+
+    /**
+     * Starts a phase.
+     * @param phase
+     * @param featurePack the feature pack the phase processes, null if the phase is not specific to a feature pack
+     * @return the started phase, which should be stopped once done
+     */
+    public Timer start(Phase phase, String featurePack) {
+        return new Timer(phase, featurePack);
+    }
+
+    private synchronized void add(Phase phase, String featurePack, long time, long bytesRead, long bytesWritten, long filesCreated, long archiveOpens) {
+        final String key = featurePack == null ? phase.getName() : phase.getName() + '\t' + featurePack;
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(phase, featurePack);
+            entries.put(key, entry);
+        }
+        entry.time += time;
+        entry.bytesRead += bytesRead;
+        entry.bytesWritten += bytesWritten;
+        entry.filesCreated += filesCreated;
+        entry.archiveOpens += archiveOpens;
+    }
+
+    /**
+     * Writes the metrics as JSON.
+     * @param server the provisioned server's directory
+     * @param reportFile
+     * @throws IOException
+     */
+    public synchronized void writeReport(File server, File reportFile) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.append("{");
+            writer.newLine();
+            writer.append("  \"server\": ").append(jsonString(server.getAbsolutePath())).append(',');
+            writer.newLine();
+            writer.append("  \"time\": ").append(String.valueOf(getTime())).append(',');
+            writer.newLine();
+            writer.append("  \"phases\": [");
+            boolean first = true;
+            for (Entry entry : entries.values()) {
+                writer.append(first ? "" : ",");
+                writer.newLine();
+                first = false;
+                writer.append("    {\"phase\": ").append(jsonString(entry.phase.getName()));
+                if (entry.featurePack != null) {
+                    writer.append(", \"featurePack\": ").append(jsonString(entry.featurePack));
+                }
+                writer.append(", \"time\": ").append(String.valueOf(TimeUnit.NANOSECONDS.toMillis(entry.time)))
+                        .append(", \"bytesRead\": ").append(String.valueOf(entry.bytesRead))
+                        .append(", \"bytesWritten\": ").append(String.valueOf(entry.bytesWritten))
+                        .append(", \"filesCreated\": ").append(String.valueOf(entry.filesCreated))
+                        .append(", \"archiveOpens\": ").append(String.valueOf(entry.archiveOpens))
+                        .append("}");
+            }
+            writer.newLine();
+            writer.append("  ]");
+            writer.newLine();
+            writer.append("}");
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Logs a summary of the metrics, i.e. the metrics of each phase, for all feature packs.
+     * @param server the provisioned server's directory
+     * @param reportFile
+     */
+    public synchronized void logSummary(File server, File reportFile) {
+        final Map<Phase, Entry> phases = new LinkedHashMap<>();
+        for (Entry entry : entries.values()) {
+            Entry phaseEntry = phases.get(entry.phase);
+            if (phaseEntry == null) {
+                phaseEntry = new Entry(entry.phase, null);
+                phases.put(entry.phase, phaseEntry);
+            }
+            phaseEntry.time += entry.time;
+            phaseEntry.bytesRead += entry.bytesRead;
+            phaseEntry.bytesWritten += entry.bytesWritten;
+            phaseEntry.filesCreated += entry.filesCreated;
+            phaseEntry.archiveOpens += entry.archiveOpens;
+        }
+        for (Entry entry : phases.values()) {
+            ProvisioningLogger.ROOT_LOGGER.provisioningPhaseMetrics(entry.phase.getName(), TimeUnit.NANOSECONDS.toMillis(entry.time), entry.filesCreated, entry.bytesRead, entry.bytesWritten, entry.archiveOpens);
+        }
+        ProvisioningLogger.ROOT_LOGGER.provisioningMetrics(server, getTime(), reportFile);
+    }
+
+    private long getTime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+    private static String jsonString(String value) {
+        final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * A started phase.
+     */
+    public class Timer {
+
+        private final Phase phase;
+        private final String featurePack;
+        private final long startTime = System.nanoTime();
+        private final long startBytesRead = bytesRead.get();
+        private final long startBytesWritten = bytesWritten.get();
+        private final long startFilesCreated = filesCreated.get();
+        private final long startArchiveOpens = ZipFileCache.getInstance().getOpenCount();
+
+        private Timer(Phase phase, String featurePack) {
+            this.phase = phase;
+            this.featurePack = featurePack;
+        }
+
+        /**
+         * Stops the phase, adding its metrics to the run's metrics.
+         */
+        public void stop() {
+            add(phase, featurePack, System.nanoTime() - startTime, bytesRead.get() - startBytesRead, bytesWritten.get() - startBytesWritten, filesCreated.get() - startFilesCreated, ZipFileCache.getInstance().getOpenCount() - startArchiveOpens);
+        }
+    }
+
+    private static class Entry {
+
+        private final Phase phase;
+        private final String featurePack;
+        private long time;
+        private long bytesRead;
+        private long bytesWritten;
+        private long filesCreated;
+        private long archiveOpens;
+
+        private Entry(Phase phase, String featurePack) {
+            this.phase = phase;
+            this.featurePack = featurePack;
+        }
+    }
+}
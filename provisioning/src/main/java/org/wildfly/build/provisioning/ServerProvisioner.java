@@ -16,20 +16,17 @@
 
 package org.wildfly.build.provisioning;
 
-import nu.xom.Attribute;
-import nu.xom.Document;
-import nu.xom.Element;
-import nu.xom.Serializer;
 import org.jboss.logging.Logger;
 import org.wildfly.build.ArtifactFileResolver;
 import org.wildfly.build.ArtifactResolver;
+import org.wildfly.build.CachingArtifactFileResolver;
 import org.wildfly.build.Locations;
 import org.wildfly.build.common.model.ConfigFile;
 import org.wildfly.build.common.model.ConfigFileOverride;
 import org.wildfly.build.common.model.CopyArtifact;
-import org.wildfly.build.common.model.FileFilter;
 import org.wildfly.build.common.model.FilePermission;
 import org.wildfly.build.configassembly.ConfigurationAssembler;
+import org.wildfly.build.configassembly.ParsedSubsystemCache;
 import org.wildfly.build.configassembly.SubsystemConfig;
 import org.wildfly.build.pack.model.Artifact;
 import org.wildfly.build.pack.model.FeaturePack;
@@ -42,7 +39,11 @@ import org.wildfly.build.util.BuildPropertyReplacer;
 import org.wildfly.build.util.FileUtils;
 import org.wildfly.build.util.ModuleArtifactPropertyResolver;
 import org.wildfly.build.util.ModuleParseResult;
+import org.wildfly.build.util.ModuleXmlTransformer;
+import org.wildfly.build.util.SubsystemTemplateIndex;
+import org.wildfly.build.util.Tasks;
 import org.wildfly.build.util.ZipEntryInputStreamSource;
+import org.wildfly.build.util.ZipFileCache;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -50,20 +51,22 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -81,35 +84,112 @@ public class ServerProvisioner {
 
     private static final boolean OS_WINDOWS = System.getProperty("os.name").contains("indows");
 
+    private static final String MANIFEST_FILE_SUFFIX = ".provisioning-manifest";
+
+    private static final String METRICS_FILE_SUFFIX = ".provisioning-metrics.json";
+
     private final ServerProvisioningDescription description;
 
     private final File outputDirectory;
 
-    private final ArtifactFileResolver artifactFileResolver;
+    private final CachingArtifactFileResolver artifactFileResolver;
 
     private final ArtifactResolver versionOverrideArtifactResolver;
 
     private final boolean overlay;
 
+    private final int parallelism;
+
+    private final boolean incremental;
+
+    private final MaterializationStrategy materializationStrategy;
+
+    private final ArtifactMaterializer artifactMaterializer;
+
+    private ExecutorService executorService;
+
+    private final File subsystemTemplateIndexFile;
+
+    private final JandexIndexer jandexIndexer;
+
+    private ProvisioningManifest manifest;
+
+    private SubsystemTemplateIndex subsystemTemplateIndex;
+
+    private ProvisioningMetrics metrics;
+
     public ServerProvisioner(ServerProvisioningDescription description, File outputDirectory, boolean overlay, ArtifactFileResolver artifactFileResolver, ArtifactResolver versionOverrideArtifactResolver) {
+        this(description, outputDirectory, overlay, artifactFileResolver, versionOverrideArtifactResolver, 1, false, null, null, null);
+    }
+
+    /**
+     *
+     * @param description
+     * @param outputDirectory
+     * @param overlay
+     * @param artifactFileResolver
+     * @param versionOverrideArtifactResolver
+     * @param parallelism the number of worker threads used to load feature packs, provision modules and assemble configs, 1 (or less) means no worker pool is used
+     * @param incremental if true the server is re-provisioned over the output of the previous run, using the manifest stored next to the output directory, writing only the files whose source changed, and removing the files no longer provisioned
+     * @param artifactStoreDirectory the content addressed store used to link artifacts, if the description's artifact materialization is not copy; if null artifacts are linked to the resolved artifact files
+     * @param subsystemTemplateIndexFile the file persisting which artifacts contain subsystem templates, between provisioning runs; if null every module artifact is searched for subsystem templates
+     * @param jandexCacheDirectory the directory where the Jandex indexes of module artifacts are cached between provisioning runs; if null indexes are always created
+     */
+    public ServerProvisioner(ServerProvisioningDescription description, File outputDirectory, boolean overlay, ArtifactFileResolver artifactFileResolver, ArtifactResolver versionOverrideArtifactResolver, int parallelism, boolean incremental, File artifactStoreDirectory, File subsystemTemplateIndexFile, File jandexCacheDirectory) {
         this.description = description;
         this.outputDirectory = outputDirectory;
         this.overlay = overlay;
-        this.artifactFileResolver = artifactFileResolver;
+        // the same artifact files are retrieved by multiple provisioning stages
+        this.artifactFileResolver = artifactFileResolver instanceof CachingArtifactFileResolver ? (CachingArtifactFileResolver) artifactFileResolver : new CachingArtifactFileResolver(artifactFileResolver);
         this.versionOverrideArtifactResolver = versionOverrideArtifactResolver;
+        this.parallelism = parallelism;
+        this.incremental = incremental;
+        this.subsystemTemplateIndexFile = subsystemTemplateIndexFile;
+        this.jandexIndexer = new JandexIndexer(jandexCacheDirectory);
+        this.materializationStrategy = MaterializationStrategy.of(description.getArtifactMaterialization());
+        if (materializationStrategy == MaterializationStrategy.COPY || artifactStoreDirectory == null) {
+            this.artifactMaterializer = materializationStrategy;
+        } else {
+            this.artifactMaterializer = new ContentAddressedArtifactStore(artifactStoreDirectory, materializationStrategy);
+        }
     }
 
     public void build() {
         final ServerProvisioning serverProvisioning = new ServerProvisioning(description);
         final List<String> errors = new ArrayList<>();
+        if (parallelism > 1) {
+            executorService = Executors.newFixedThreadPool(parallelism);
+        }
+        metrics = new ProvisioningMetrics();
         try {
-            // create the feature packs
+            subsystemTemplateIndex = SubsystemTemplateIndex.load(subsystemTemplateIndexFile);
+            // create the feature packs, which share their dependencies, loaded concurrently
+            final ProvisioningMetrics.Timer featurePackTimer = metrics.start(ProvisioningMetrics.Phase.FEATURE_PACK_CREATION, null);
+            final List<Artifact> featurePackArtifacts = new ArrayList<>();
             for (ServerProvisioningDescription.FeaturePack serverProvisioningFeaturePackDescription : description.getFeaturePacks()) {
-                final FeaturePack featurePack = FeaturePackFactory.createPack(serverProvisioningFeaturePackDescription.getArtifact(), artifactFileResolver, versionOverrideArtifactResolver);
-                serverProvisioning.getFeaturePacks().add(new ServerProvisioningFeaturePack(serverProvisioningFeaturePackDescription, featurePack, artifactFileResolver));
+                featurePackArtifacts.add(serverProvisioningFeaturePackDescription.getArtifact());
+            }
+            final List<FeaturePack> featurePacks = FeaturePackFactory.createPacks(featurePackArtifacts, artifactFileResolver, versionOverrideArtifactResolver, executorService);
+            for (int i = 0; i < featurePacks.size(); i++) {
+                serverProvisioning.getFeaturePacks().add(new ServerProvisioningFeaturePack(description.getFeaturePacks().get(i), featurePacks.get(i), artifactFileResolver));
+            }
+            featurePackTimer.stop();
+            // resolve all artifacts up front, in batch
+            ProvisioningMetrics.Timer timer = metrics.start(ProvisioningMetrics.Phase.ARTIFACT_PREFETCH, null);
+            prefetchArtifactFiles(serverProvisioning);
+            timer.stop();
+            // create output dir, unless re-provisioning incrementally
+            final File manifestFile = new File(outputDirectory.getAbsoluteFile().getParentFile(), outputDirectory.getName() + MANIFEST_FILE_SUFFIX);
+            if (incremental) {
+                manifest = ProvisioningManifest.load(manifestFile);
+                // the manifest is only valid once this run completes
+                Files.deleteIfExists(manifestFile.toPath());
+            }
+            if (manifest == null || manifest.isEmpty()) {
+                FileUtils.deleteRecursive(outputDirectory);
+            } else {
+                getLog().debugf("Re-provisioning server %s incrementally", outputDirectory);
             }
-            // create output dir
-            FileUtils.deleteRecursive(outputDirectory);
             outputDirectory.mkdirs();
             // create schema output dir if needed
             final File schemaOutputDirectory;
@@ -123,26 +203,65 @@ public class ServerProvisioner {
             }
             final Set<String> filesProcessed = new HashSet<>();
             // process server provisioning copy-artifacts
+            timer = metrics.start(ProvisioningMetrics.Phase.COPY_ARTIFACTS, null);
             processCopyArtifacts(serverProvisioning.getDescription().getCopyArtifacts(), versionOverrideArtifactResolver, outputDirectory, filesProcessed, artifactFileResolver, schemaOutputDirectory);
+            timer.stop();
             // process modules (needs to be done for all feature packs before any config is processed, due to subsystem template gathering)
             processModules(serverProvisioning, outputDirectory, filesProcessed, artifactFileResolver, schemaOutputDirectory);
 
+            // the permissions of each feature pack, which only apply to the files already there when its content is extracted
+            final FilePermissionRules filePermissionRules = new FilePermissionRules();
+            filePermissionRules.addFiles(filesProcessed);
             // process everything else for each feature pack
             for (ServerProvisioningFeaturePack provisioningFeaturePack : serverProvisioning.getFeaturePacks()) {
+                final String featurePackName = provisioningFeaturePack.getFeaturePack().getArtifact().toString();
                 if ( ! overlay ) {
+                    timer = metrics.start(ProvisioningMetrics.Phase.SUBSYSTEM_TEMPLATE_GATHERING, featurePackName);
                     processSubsystemConfigInFeaturePack(provisioningFeaturePack, serverProvisioning, artifactFileResolver);
+                    timer.stop();
                 }
+                timer = metrics.start(ProvisioningMetrics.Phase.COPY_ARTIFACTS, featurePackName);
                 processFeaturePackCopyArtifacts(provisioningFeaturePack.getFeaturePack(), outputDirectory, filesProcessed, artifactFileResolver, schemaOutputDirectory, overlay || description.isExcludeDependencies());
+                timer.stop();
+                timer = metrics.start(ProvisioningMetrics.Phase.CONTENT_EXTRACTION, featurePackName);
                 processProvisioningFeaturePackContents(provisioningFeaturePack, outputDirectory, filesProcessed, overlay || description.isExcludeDependencies());
-                processFeaturePackFilePermissions(provisioningFeaturePack.getFeaturePack(), outputDirectory, overlay || description.isExcludeDependencies());
+                timer.stop();
+                filePermissionRules.nextFeaturePack();
+                filePermissionRules.addFiles(filesProcessed);
+                addFeaturePackFilePermissions(provisioningFeaturePack.getFeaturePack(), filePermissionRules, overlay || description.isExcludeDependencies());
             }
+            // set the file permissions of all feature packs, with a single walk
+            timer = metrics.start(ProvisioningMetrics.Phase.FILE_PERMISSIONS, null);
+            processFilePermissions(filePermissionRules, outputDirectory);
+            timer.stop();
             // process the server config
             if ( ! overlay ) {
+                timer = metrics.start(ProvisioningMetrics.Phase.CONFIG_ASSEMBLY, null);
                 processConfig(serverProvisioning, outputDirectory, filesProcessed);
+                timer.stop();
+            }
+            if (manifest != null) {
+                removeObsoleteFiles();
+                manifest.store(manifestFile);
             }
+            subsystemTemplateIndex.store();
+            // write the metrics report next to the server
+            final File metricsFile = new File(outputDirectory.getAbsoluteFile().getParentFile(), outputDirectory.getName() + METRICS_FILE_SUFFIX);
+            metrics.writeReport(outputDirectory, metricsFile);
+            metrics.logSummary(outputDirectory, metricsFile);
         } catch (Throwable e) {
             throw new RuntimeException(e);
         } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+                executorService = null;
+            }
+            manifest = null;
+            subsystemTemplateIndex = null;
+            metrics = null;
+            getLog().debugf("Artifact file retrievals: %d resolved, %d cached", artifactFileResolver.getMissCount(), artifactFileResolver.getHitCount());
+            // close the archives opened while provisioning
+            ZipFileCache.getInstance().clear();
             if (!errors.isEmpty()) {
                 StringBuilder sb = new StringBuilder();
                 sb.append("Some errors were encountered creating the feature pack\n");
@@ -156,15 +275,60 @@ public class ServerProvisioner {
 
     }
 
+    /**
+     * Resolves the files of all artifacts the server is provisioned from, i.e. copy artifacts and module artifacts, in a
+     * single batch, before any of these is processed.
+     * @param serverProvisioning
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private void prefetchArtifactFiles(ServerProvisioning serverProvisioning) throws IOException, XMLStreamException {
+        final long start = System.currentTimeMillis();
+        final Set<Artifact> artifacts = new LinkedHashSet<>();
+        for (CopyArtifact copyArtifact : description.getCopyArtifacts()) {
+            artifacts.add(copyArtifact.getArtifact(versionOverrideArtifactResolver));
+        }
+        for (ServerProvisioningFeaturePack provisioningFeaturePack : serverProvisioning.getFeaturePacks()) {
+            addFeaturePackCopyArtifacts(provisioningFeaturePack.getFeaturePack(), artifacts, overlay || description.isExcludeDependencies());
+            // the subsystem templates are gathered from all modules, regardless of the value of exclude-dependencies
+            for (FeaturePack.Module module : provisioningFeaturePack.getModules(artifactFileResolver, false).values()) {
+                for (ModuleParseResult.ArtifactName artifactName : module.getModuleParseResult().getArtifacts()) {
+                    final Artifact artifact = artifactName.hasVersion() ? artifactName.getArtifact() : module.getFeaturePack().getArtifactResolver().getArtifact(artifactName.getArtifact());
+                    // unresolved artifacts fail when their module is processed
+                    if (artifact != null) {
+                        artifacts.add(artifact);
+                    }
+                }
+            }
+        }
+        artifactFileResolver.prefetchArtifactFiles(artifacts);
+        getLog().debugf("Prefetched %d artifacts in %d ms", artifacts.size(), System.currentTimeMillis() - start);
+    }
+
+    private static void addFeaturePackCopyArtifacts(FeaturePack featurePack, Set<Artifact> artifacts, boolean excludeDependencies) {
+        for (CopyArtifact copyArtifact : featurePack.getDescription().getCopyArtifacts()) {
+            artifacts.add(copyArtifact.getArtifact(featurePack.getArtifactResolver()));
+        }
+        if (!excludeDependencies) {
+            for (FeaturePack dependency : featurePack.getDependencies()) {
+                addFeaturePackCopyArtifacts(dependency, artifacts, excludeDependencies);
+            }
+        }
+    }
+
     private void processSubsystemConfigInFeaturePack(ServerProvisioningFeaturePack provisioningFeaturePack, ServerProvisioning serverProvisioning, ArtifactFileResolver artifactFileResolver) throws IOException {
 
         File artifactFile = artifactFileResolver.getArtifactFile(provisioningFeaturePack.getFeaturePack().getArtifact());
         // features packs themselves can contain a 'subsystem-templates' directory. Templates in the feature pack override ones from modules
-        serverProvisioning.getConfig().getInputStreamSources().addAllSubsystemFileSourcesFromZipFile(artifactFile);
+        serverProvisioning.getConfig().getInputStreamSources().addAllSubsystemFileSourcesFromZipFile(artifactFile, subsystemTemplateIndex);
     }
 
     public static void build(ServerProvisioningDescription description, File outputDirectory, boolean overlay, ArtifactFileResolver artifactFileResolver, ArtifactResolver versionOverrideArtifactResolver) {
-        ServerProvisioner provisioner = new ServerProvisioner(description, outputDirectory, overlay, artifactFileResolver, versionOverrideArtifactResolver);
+        build(description, outputDirectory, overlay, artifactFileResolver, versionOverrideArtifactResolver, 1, false, null, null, null);
+    }
+
+    public static void build(ServerProvisioningDescription description, File outputDirectory, boolean overlay, ArtifactFileResolver artifactFileResolver, ArtifactResolver versionOverrideArtifactResolver, int parallelism, boolean incremental, File artifactStoreDirectory, File subsystemTemplateIndexFile, File jandexCacheDirectory) {
+        ServerProvisioner provisioner = new ServerProvisioner(description, outputDirectory, overlay, artifactFileResolver, versionOverrideArtifactResolver, parallelism, incremental, artifactStoreDirectory, subsystemTemplateIndexFile, jandexCacheDirectory);
         provisioner.build();
     }
 
@@ -199,7 +363,11 @@ public class ServerProvisioner {
             if (copyArtifact.isExtract()) {
                 extractArtifact(artifactFile, target, copyArtifact);
             } else {
-                FileUtils.copyFile(artifactFile, target);
+                final String source = ProvisioningManifest.fileSource(artifactFile) + "?" + materializationStrategy.getName();
+                if (!isUpToDate(target, source)) {
+                    materialize(artifactFile, target);
+                }
+                addToManifest(target, source);
             }
 
             extractSchema(schemaOutputDirectory, artifact, artifactFile);
@@ -213,7 +381,11 @@ public class ServerProvisioner {
             // extract schemas, if any
             if (description.getExtractSchemasGroups().contains(groupId)) {
                 logger.debugf("extracting schemas for artifact: '%s'", artifact);
-                FileUtils.extractSchemas(artifactFile, schemaOutputDirectory);
+                final List<File> schemaFiles = FileUtils.extractSchemas(artifactFile, schemaOutputDirectory);
+                for (File schemaFile : schemaFiles) {
+                    metrics.fileCreated(schemaFile.length(), schemaFile.length());
+                    addToManifest(schemaFile, ProvisioningManifest.fileSource(artifactFile));
+                }
             }
         }
     }
@@ -224,7 +396,9 @@ public class ServerProvisioner {
         final Map<FeaturePack, List<FeaturePack.Module>> featurePackModulesMap = new HashMap<>();
         Set<ModuleIdentifier> moduleIdentifiers = new HashSet<>();
         for (ServerProvisioningFeaturePack provisioningFeaturePack : serverProvisioning.getFeaturePacks()) {
+            final String featurePackName = provisioningFeaturePack.getFeaturePack().getArtifact().toString();
             getLog().debugf("Gathering modules for provisioning feature pack %s", provisioningFeaturePack.getFeaturePack().getFeaturePackFile());
+            ProvisioningMetrics.Timer timer = metrics.start(ProvisioningMetrics.Phase.MODULE_GATHERING, featurePackName);
             for (FeaturePack.Module module : provisioningFeaturePack.getModules(artifactFileResolver, overlay || serverProvisioning.getDescription().isExcludeDependencies()).values()) {
                 final ModuleIdentifier moduleIdentifier = module.getIdentifier();
                 if (moduleIdentifiers.add(moduleIdentifier)) {
@@ -239,7 +413,9 @@ public class ServerProvisioner {
                     getLog().debugf("Skipping %s from feature pack %s. A module with such identifier is already in the provisioning module set.", moduleIdentifier, module.getFeaturePack().getFeaturePackFile());
                 }
             }
+            timer.stop();
             //we always need to resolve all subsystem templates, regardless of the value of exclude-dependencies
+            timer = metrics.start(ProvisioningMetrics.Phase.SUBSYSTEM_TEMPLATE_GATHERING, featurePackName);
             for (FeaturePack.Module module : provisioningFeaturePack.getModules(artifactFileResolver, false).values()) {
                 for (ModuleParseResult.ArtifactName artifactName : module.getModuleParseResult().getArtifacts()) {
                     String options = artifactName.getOptions();
@@ -254,179 +430,226 @@ public class ServerProvisioner {
                     }
                     File artifactFile = artifactFileResolver.getArtifactFile(artifact);
                     // add all subsystem templates
-                    serverProvisioning.getConfig().getInputStreamSources().addAllSubsystemFileSourcesFromZipFile(artifactFile);
+                    serverProvisioning.getConfig().getInputStreamSources().addAllSubsystemFileSourcesFromZipFile(artifactFile, subsystemTemplateIndex);
                 }
             }
+            timer.stop();
         }
         // 2. provision each feature pack modules
         for (Map.Entry<FeaturePack, List<FeaturePack.Module>> mapEntry : featurePackModulesMap.entrySet()) {
             FeaturePack featurePack = mapEntry.getKey();
             List<FeaturePack.Module> includedModules = mapEntry.getValue();
+            final ProvisioningMetrics.Timer timer = metrics.start(ProvisioningMetrics.Phase.MODULE_PROVISIONING, featurePack.getArtifact().toString());
             processFeaturePackModules(featurePack, includedModules, serverProvisioning, outputDirectory, filesProcessed, artifactFileResolver, schemaOutputDirectory);
+            timer.stop();
         }
     }
 
-    private void processFeaturePackModules(FeaturePack featurePack, List<FeaturePack.Module> includedModules, ServerProvisioning serverProvisioning, File outputDirectory, Set<String> filesProcessed, ArtifactFileResolver artifactFileResolver, File schemaOutputDirectory) throws IOException {
+    private void processFeaturePackModules(final FeaturePack featurePack, List<FeaturePack.Module> includedModules, ServerProvisioning serverProvisioning, final File outputDirectory, Set<String> filesProcessed, final ArtifactFileResolver artifactFileResolver, File schemaOutputDirectory) throws IOException {
         final boolean thinServer = !serverProvisioning.getDescription().isCopyModuleArtifacts();
         // create the module's artifact property replacer
         final BuildPropertyReplacer buildPropertyReplacer = thinServer ? new BuildPropertyReplacer(new ModuleArtifactPropertyResolver(featurePack.getArtifactResolver())) : null;
         // process each module file
-        try (JarFile jar = new JarFile(featurePack.getFeaturePackFile())) {
-            for (FeaturePack.Module module : includedModules) {
-                // process the module file
-                final String jarEntryName = module.getModuleFile();
-                filesProcessed.add(jarEntryName);
-                File targetFile = new File(outputDirectory, jarEntryName);
-                // ensure parent dirs exist
-                targetFile.getParentFile().mkdirs();
-                // extract the module file
-                FileUtils.extractFile(jar, jarEntryName, targetFile);
-                // parse the module xml
-                ModuleParseResult result = module.getModuleParseResult();
-                // process module artifacts
-                for (ModuleParseResult.ArtifactName artifactName : result.getArtifacts()) {
-                    String options = artifactName.getOptions();
-                    boolean jandex = false;
-                    if (options != null) {
-                        jandex = options.contains("jandex"); //todo: eventually we may need options to have a proper query string type syntax
+        try (ZipFileCache.Ref ref = ZipFileCache.getInstance().open(featurePack.getFeaturePackFile())) {
+            final JarFile jar = ref.getJarFile();
+            final List<Callable<List<Map.Entry<Artifact, File>>>> tasks = new ArrayList<>();
+            for (final FeaturePack.Module module : includedModules) {
+                filesProcessed.add(module.getModuleFile());
+                filesProcessed.addAll(module.getModuleDirFiles());
+                tasks.add(new Callable<List<Map.Entry<Artifact, File>>>() {
+                    @Override
+                    public List<Map.Entry<Artifact, File>> call() throws Exception {
+                        return processFeaturePackModule(featurePack, module, jar, thinServer, buildPropertyReplacer, outputDirectory, artifactFileResolver);
                     }
-                    Artifact artifact;
-                    if(artifactName.hasVersion()) {
-                        artifact = artifactName.getArtifact();
-                    } else {
-                        artifact = featurePack.getArtifactResolver().getArtifact(artifactName.getArtifact());
-                    }
-                    if (artifact == null) {
-                        throw new RuntimeException("Could not resolve module resource artifact " + artifactName + " for feature pack " + featurePack.getFeaturePackFile());
+                });
+            }
+            // extract schemas once all modules are done, in module order, so the output does not depend on task scheduling
+            for (List<Map.Entry<Artifact, File>> moduleArtifacts : Tasks.invokeAll(executorService, tasks)) {
+                for (Map.Entry<Artifact, File> moduleArtifact : moduleArtifacts) {
+                    extractSchema(schemaOutputDirectory, moduleArtifact.getKey(), moduleArtifact.getValue());
+                }
+            }
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to process feature pack " + featurePack.getFeaturePackFile() + " modules", e);
+        }
+    }
+
+    /**
+     * Provisions a single module, i.e. its module xml and artifacts, and all other files in its module dir.
+     * @return the module's resolved artifacts and their files
+     */
+    private List<Map.Entry<Artifact, File>> processFeaturePackModule(FeaturePack featurePack, FeaturePack.Module module, JarFile jar, boolean thinServer, BuildPropertyReplacer buildPropertyReplacer, File outputDirectory, ArtifactFileResolver artifactFileResolver) throws IOException, XMLStreamException {
+        final List<Map.Entry<Artifact, File>> moduleArtifacts = new ArrayList<>();
+        // process the module file
+        final String jarEntryName = module.getModuleFile();
+        File targetFile = new File(outputDirectory, jarEntryName);
+        // ensure parent dirs exist
+        targetFile.getParentFile().mkdirs();
+        // the parsed module xml, and the transformer that rewrites it
+        ModuleParseResult result = module.getModuleParseResult();
+        final ModuleXmlTransformer moduleXmlTransformer = new ModuleXmlTransformer(result);
+        // process module artifacts
+        for (ModuleParseResult.ArtifactName artifactName : result.getArtifacts()) {
+            String options = artifactName.getOptions();
+            boolean jandex = false;
+            if (options != null) {
+                jandex = options.contains("jandex"); //todo: eventually we may need options to have a proper query string type syntax
+            }
+            Artifact artifact;
+            if(artifactName.hasVersion()) {
+                artifact = artifactName.getArtifact();
+            } else {
+                artifact = featurePack.getArtifactResolver().getArtifact(artifactName.getArtifact());
+            }
+            if (artifact == null) {
+                throw new RuntimeException("Could not resolve module resource artifact " + artifactName + " for feature pack " + featurePack.getFeaturePackFile());
+            }
+            try {
+                if (thinServer) {
+                    // replace artifact coords properties with the ones expected by jboss-modules
+                    String orig = artifactName.getValue();
+                    if(orig.contains("?")) {
+                        orig = orig.substring(0, orig.indexOf("?")) + "}";
                     }
-                    try {
-                        if (thinServer) {
-                            // replace artifact coords properties with the ones expected by jboss-modules
-                            String orig = artifactName.getAttribute().getValue();
-                            if(orig.contains("?")) {
-                                orig = orig.substring(0, orig.indexOf("?")) + "}";
-                            }
-                            if(!artifactName.hasVersion()) {
-                                String repl = buildPropertyReplacer.replaceProperties(orig);
-                                if (! repl.equals(orig)) {
-                                    artifactName.getAttribute().setValue(repl);
-                                }
-                            } else {
-                                artifactName.getAttribute().setValue(artifactName.getJBossModulesArtifactString());
-                            }
-                            File artifactFile = artifactFileResolver.getArtifactFile(artifact);
-                            // extract schemas if needed
-                            extractSchema(schemaOutputDirectory, artifact, artifactFile);
-                        } else {
-                            // process the module artifact
-                            File artifactFile = artifactFileResolver.getArtifactFile(artifact);
-                            // extract schemas if needed
-                            extractSchema(schemaOutputDirectory, artifact, artifactFile);
-                            String location;
-                            if (jandex) {
-                                String baseName = artifactFile.getName().substring(0, artifactFile.getName().lastIndexOf("."));
-                                String extension = artifactFile.getName().substring(artifactFile.getName().lastIndexOf("."));
-                                File target = new File(targetFile.getParent(), baseName + "-jandex" + extension);
-                                JandexIndexer.createIndex(artifactFile, new FileOutputStream(target));
-                                location = target.getName();
-                            } else {
-                                location = artifactFile.getName();
-                                // copy the artifact
-                                FileUtils.copyFile(artifactFile, new File(targetFile.getParent(), location));
-                            }
-                            // update module xml content
-                            final Attribute attribute = artifactName.getAttribute();
-                            final Element artifactNode = (Element) attribute.getParent();
-                            artifactNode.setLocalName("resource-root");
-                            attribute.setLocalName("path");
-                            attribute.setValue(location);
+                    if(!artifactName.hasVersion()) {
+                        String repl = buildPropertyReplacer.replaceProperties(orig);
+                        if (! repl.equals(orig)) {
+                            moduleXmlTransformer.setArtifactName(artifactName, repl);
                         }
-                    } catch (Throwable t) {
-                        throw new RuntimeException("Could not extract resources from " + artifactName, t);
+                    } else {
+                        moduleXmlTransformer.setArtifactName(artifactName, artifactName.getJBossModulesArtifactString());
                     }
-                }
-                // update the version, if there is one
-                final ModuleParseResult.ArtifactName versionArtifactName = result.getVersionArtifactName();
-                if (versionArtifactName != null) {
-                    Artifact artifact = featurePack.getArtifactResolver().getArtifact(versionArtifactName.getArtifact());
-                    if (artifact == null) {
-                        throw new RuntimeException("Could not resolve module resource artifact " + versionArtifactName + " for feature pack " + featurePack.getFeaturePackFile());
+                    File artifactFile = artifactFileResolver.getArtifactFile(artifact);
+                    moduleArtifacts.add(new AbstractMap.SimpleImmutableEntry<>(artifact, artifactFile));
+                } else {
+                    // process the module artifact
+                    File artifactFile = artifactFileResolver.getArtifactFile(artifact);
+                    moduleArtifacts.add(new AbstractMap.SimpleImmutableEntry<>(artifact, artifactFile));
+                    String location;
+                    if (jandex) {
+                        String baseName = artifactFile.getName().substring(0, artifactFile.getName().lastIndexOf("."));
+                        String extension = artifactFile.getName().substring(artifactFile.getName().lastIndexOf("."));
+                        File target = new File(targetFile.getParent(), baseName + "-jandex" + extension);
+                        final String source = ProvisioningManifest.fileSource(artifactFile) + "?jandex";
+                        if (!isUpToDate(target, source)) {
+                            jandexIndexer.createIndexJar(artifactFile, target);
+                            metrics.fileCreated(artifactFile.length(), target.length());
+                        }
+                        addToManifest(target, source);
+                        location = target.getName();
+                    } else {
+                        location = artifactFile.getName();
+                        // copy the artifact
+                        final File target = new File(targetFile.getParent(), location);
+                        final String source = ProvisioningManifest.fileSource(artifactFile) + "?" + materializationStrategy.getName();
+                        if (!isUpToDate(target, source)) {
+                            materialize(artifactFile, target);
+                        }
+                        addToManifest(target, source);
                     }
-                    // set the resolved version
-                    versionArtifactName.getAttribute().setValue(artifact.getVersion());
-                }
-                // write updated module xml content
-                final Document document = result.getDocument();
-                try (FileOutputStream out = new FileOutputStream(targetFile)) {
-                    new Serializer(out).write(document);
-                }
-
-                // extract all other files in the module dir
-                for (String moduleDirFile : module.getModuleDirFiles()) {
-                    filesProcessed.add(moduleDirFile);
-                    FileUtils.extractFile(jar, moduleDirFile, new File(outputDirectory, moduleDirFile));
+                    // update module xml content
+                    moduleXmlTransformer.setResourceRoot(artifactName, location);
                 }
+            } catch (Throwable t) {
+                throw new RuntimeException("Could not extract resources from " + artifactName, t);
             }
-        } catch (Throwable e) {
-            throw new RuntimeException("Failed to process feature pack " + featurePack.getFeaturePackFile() + " modules", e);
         }
+        // update the version, if there is one
+        final ModuleParseResult.ArtifactName versionArtifactName = result.getVersionArtifactName();
+        if (versionArtifactName != null) {
+            Artifact artifact = featurePack.getArtifactResolver().getArtifact(versionArtifactName.getArtifact());
+            if (artifact == null) {
+                throw new RuntimeException("Could not resolve module resource artifact " + versionArtifactName + " for feature pack " + featurePack.getFeaturePackFile());
+            }
+            // set the resolved version
+            moduleXmlTransformer.setVersion(artifact.getVersion());
+        }
+        // write updated module xml content
+        final ZipEntry moduleFileEntry = jar.getEntry(jarEntryName);
+        try (InputStream in = jar.getInputStream(moduleFileEntry);
+             FileOutputStream out = new FileOutputStream(targetFile)) {
+            moduleXmlTransformer.transform(in, out);
+        }
+        metrics.fileCreated(moduleFileEntry.getSize(), targetFile.length());
+        addToManifest(targetFile, ProvisioningManifest.GENERATED);
+
+        // extract all other files in the module dir
+        for (String moduleDirFile : module.getModuleDirFiles()) {
+            extractFile(jar, moduleDirFile, new File(outputDirectory, moduleDirFile));
+        }
+        return moduleArtifacts;
     }
 
-    private void processConfig(ServerProvisioning serverProvisioning, File outputDirectory, Set<String> filesProcessed) throws IOException, XMLStreamException {
+    private void processConfig(ServerProvisioning serverProvisioning, File outputDirectory, Set<String> filesProcessed) throws Exception {
         ServerProvisioning.Config provisioningConfig = serverProvisioning.getConfig();
         // 1. collect and merge each feature pack configs
         for (ServerProvisioningFeaturePack provisioningFeaturePack : serverProvisioning.getFeaturePacks()) {
             processFeaturePackConfig(provisioningFeaturePack, provisioningConfig);
         }
-        // 2. assemble the merged configs
-        for (ServerProvisioning.ConfigFile provisioningConfigFile : provisioningConfig.getDomainConfigFiles().values()) {
-            if (provisioningConfigFile.getTemplateInputStreamSource() == null) {
-                getLog().debugf("Skipping assembly of config file %s, template not set.", provisioningConfigFile.getOutputFile());
-                continue;
-            }
-            getLog().debugf("Assembling config file %s", provisioningConfigFile.getOutputFile());
-            filesProcessed.add(provisioningConfigFile.getOutputFile());
-            new ConfigurationAssembler(provisioningConfig.getInputStreamSources(),
-                                       provisioningConfigFile.getTemplateInputStreamSource(),
-                                       "domain",
-                                       provisioningConfigFile.getSubsystems(),
-                                       new File(outputDirectory, provisioningConfigFile.getOutputFile()))
-                    .assemble();
-        }
-        for (ServerProvisioning.ConfigFile provisioningConfigFile : provisioningConfig.getStandaloneConfigFiles().values()) {
-            if (provisioningConfigFile.getTemplateInputStreamSource() == null) {
-                getLog().debugf("Skipping assembly of config file %s, template not set.", provisioningConfigFile.getOutputFile());
-                continue;
+        // 2. assemble the merged configs, concurrently if the provisioner has a worker pool
+        final List<File> outputFiles = new ArrayList<>();
+        final List<Callable<Throwable>> tasks = new ArrayList<>();
+        // subsystem templates are parsed once, for all configs
+        final ParsedSubsystemCache parsedSubsystemCache = new ParsedSubsystemCache();
+        addConfigAssemblyTasks(provisioningConfig, provisioningConfig.getDomainConfigFiles(), "domain", parsedSubsystemCache, outputDirectory, filesProcessed, outputFiles, tasks);
+        addConfigAssemblyTasks(provisioningConfig, provisioningConfig.getStandaloneConfigFiles(), "server", parsedSubsystemCache, outputDirectory, filesProcessed, outputFiles, tasks);
+        addConfigAssemblyTasks(provisioningConfig, provisioningConfig.getHostConfigFiles(), "host", parsedSubsystemCache, outputDirectory, filesProcessed, outputFiles, tasks);
+        // each task returns its failure, so that all configs are assembled, and all failures reported
+        final List<Throwable> failures = Tasks.invokeAll(executorService, tasks);
+        RuntimeException failure = null;
+        for (int i = 0; i < outputFiles.size(); i++) {
+            final File outputFile = outputFiles.get(i);
+            final Throwable t = failures.get(i);
+            if (t == null) {
+                metrics.fileCreated(0, outputFile.length());
+                addToManifest(outputFile, ProvisioningManifest.GENERATED);
+            } else {
+                if (failure == null) {
+                    failure = new RuntimeException("Some errors were encountered assembling the server configs");
+                }
+                failure.addSuppressed(new RuntimeException("Failed to assemble config file " + outputFile, t));
             }
-            getLog().debugf("Assembling config file %s", provisioningConfigFile.getOutputFile());
-            filesProcessed.add(provisioningConfigFile.getOutputFile());
-            new ConfigurationAssembler(provisioningConfig.getInputStreamSources(),
-                                       provisioningConfigFile.getTemplateInputStreamSource(),
-                                       "server",
-                                       provisioningConfigFile.getSubsystems(),
-                                       new File(outputDirectory, provisioningConfigFile.getOutputFile()))
-                    .assemble();
-        }
-        for (ServerProvisioning.ConfigFile provisioningConfigFile : provisioningConfig.getHostConfigFiles().values()) {
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void addConfigAssemblyTasks(final ServerProvisioning.Config provisioningConfig, Map<String, ServerProvisioning.ConfigFile> provisioningConfigFiles, final String rootElementName, final ParsedSubsystemCache parsedSubsystemCache, File outputDirectory, Set<String> filesProcessed, List<File> outputFiles, List<Callable<Throwable>> tasks) {
+        for (final ServerProvisioning.ConfigFile provisioningConfigFile : provisioningConfigFiles.values()) {
             if (provisioningConfigFile.getTemplateInputStreamSource() == null) {
                 getLog().debugf("Skipping assembly of config file %s, template not set.", provisioningConfigFile.getOutputFile());
                 continue;
             }
-            getLog().debugf("Assembling config file %s", provisioningConfigFile.getOutputFile());
             filesProcessed.add(provisioningConfigFile.getOutputFile());
-            new ConfigurationAssembler(provisioningConfig.getInputStreamSources(),
-                                       provisioningConfigFile.getTemplateInputStreamSource(),
-                                       "host",
-                                       provisioningConfigFile.getSubsystems(),
-                                       new File(outputDirectory, provisioningConfigFile.getOutputFile()))
-                    .assemble();
+            final File outputFile = new File(outputDirectory, provisioningConfigFile.getOutputFile());
+            outputFiles.add(outputFile);
+            tasks.add(new Callable<Throwable>() {
+                @Override
+                public Throwable call() {
+                    getLog().debugf("Assembling config file %s", provisioningConfigFile.getOutputFile());
+                    try {
+                        new ConfigurationAssembler(provisioningConfig.getInputStreamSources(),
+                                                   provisioningConfigFile.getTemplateInputStreamSource(),
+                                                   rootElementName,
+                                                   provisioningConfigFile.getSubsystems(),
+                                                   outputFile,
+                                                   parsedSubsystemCache)
+                                .assemble();
+                        return null;
+                    } catch (Throwable t) {
+                        return t;
+                    }
+                }
+            });
         }
     }
 
     private void processFeaturePackConfig(ServerProvisioningFeaturePack provisioningFeaturePack, ServerProvisioning.Config provisioningConfig) throws IOException, XMLStreamException {
         FeaturePack featurePack = provisioningFeaturePack.getFeaturePack();
         getLog().debug("Processing provisioning feature pack " + featurePack.getFeaturePackFile() + " configs");
-        try (ZipFile zipFile = new ZipFile(featurePack.getFeaturePackFile())) {
+        try (ZipFileCache.Ref ref = ZipFileCache.getInstance().open(featurePack.getFeaturePackFile())) {
+            final ZipFile zipFile = ref.getJarFile();
             for (ServerProvisioningFeaturePack.ConfigFile serverProvisioningFeaturePackConfigFile : provisioningFeaturePack.getDomainConfigFiles()) {
                 processFeaturePackConfigFile(serverProvisioningFeaturePackConfigFile, zipFile, provisioningFeaturePack, provisioningConfig.getDomainConfigFiles());
             }
@@ -501,20 +724,11 @@ public class ServerProvisioner {
 
     private void processFeaturePackContents(FeaturePack featurePack, ServerProvisioningDescription.FeaturePack.ContentFilters contentFilters, File outputDirectory, Set<String> filesProcessed, boolean excludeDependencies) throws IOException {
         final int fileNameWithoutContentsStart = Locations.CONTENT.length() + 1;
-        try (JarFile jar = new JarFile(featurePack.getFeaturePackFile())) {
+        try (ZipFileCache.Ref ref = ZipFileCache.getInstance().open(featurePack.getFeaturePackFile())) {
+            final JarFile jar = ref.getJarFile();
             for (String contentFile : featurePack.getContentFiles()) {
                 final String outputFile = contentFile.substring(fileNameWithoutContentsStart);
-                boolean include = true;
-                if (contentFilters != null) {
-                    include = contentFilters.isInclude();
-                    for (FileFilter contentFilter : contentFilters.getFilters()) {
-                        if (contentFilter.matches(outputFile) && !contentFilter.isInclude()) {
-                            include = false;
-                            break;
-                        }
-                    }
-                }
-                if (!include) {
+                if (contentFilters != null && !contentFilters.includeFile(outputFile)) {
                     getLog().debugf("Skipping feature pack %s filtered content file %s", featurePack.getFeaturePackFile(), outputFile);
                     continue;
                 }
@@ -523,7 +737,7 @@ public class ServerProvisioner {
                     continue;
                 }
                 getLog().debugf("Adding feature pack %s content file %s", featurePack.getFeaturePackFile(), outputFile);
-                FileUtils.extractFile(jar, contentFile, new java.io.File(outputDirectory, outputFile));
+                extractFile(jar, contentFile, new java.io.File(outputDirectory, outputFile));
             }
         }
         if (!excludeDependencies) {
@@ -533,47 +747,36 @@ public class ServerProvisioner {
         }
     }
 
-    private void processFeaturePackFilePermissions(FeaturePack featurePack, File outputDirectory, boolean excludeDependencies) throws IOException {
-        final Path baseDir = Paths.get(outputDirectory.getAbsolutePath());
-        final List<FilePermission> filePermissions = featurePack.getDescription().getFilePermissions();
-        Files.walkFileTree(baseDir, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                String relative = baseDir.relativize(dir).toString();
-                if (!OS_WINDOWS) {
-                    for (FilePermission perm : filePermissions) {
-                        if (perm.includeFile(relative)) {
-                            Files.setPosixFilePermissions(dir, perm.getPermission());
-                            continue;
-                        }
-                    }
-                }
-                return FileVisitResult.CONTINUE;
-            }
+    /**
+     * Sets the file permissions of all feature packs, with a single walk of the server's file tree. As when each feature
+     * pack's permissions were applied right after its content was extracted, a permission doesn't apply to the files
+     * provided by the following feature packs, see {@link FilePermissionRules}.
+     * @param filePermissionRules
+     * @param outputDirectory
+     * @throws IOException
+     */
+    private void processFilePermissions(FilePermissionRules filePermissionRules, File outputDirectory) throws IOException {
+        if (OS_WINDOWS) {
+            return;
+        }
+        filePermissionRules.apply(Paths.get(outputDirectory.getAbsolutePath()));
+    }
 
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                String relative = baseDir.relativize(file).toString();
-                if (!OS_WINDOWS) {
-                    for (FilePermission perm : filePermissions) {
-                        if (perm.includeFile(relative)) {
-                            Files.setPosixFilePermissions(file, perm.getPermission());
-                            continue;
-                        }
-                    }
-                }
-                return FileVisitResult.CONTINUE;
-            }
-        });
+    private void addFeaturePackFilePermissions(FeaturePack featurePack, FilePermissionRules filePermissionRules, boolean excludeDependencies) {
+        // the permissions are applied in feature pack order, a feature pack's dependencies after it, thus the last rule including a file wins
+        for (FilePermission filePermission : featurePack.getDescription().getFilePermissions()) {
+            filePermissionRules.addFilePermission(filePermission);
+        }
         if (!excludeDependencies) {
             for (FeaturePack dependency : featurePack.getDependencies()) {
-                processFeaturePackFilePermissions(dependency, outputDirectory, excludeDependencies);
+                addFeaturePackFilePermissions(dependency, filePermissionRules, excludeDependencies);
             }
         }
     }
 
     private void extractArtifact(File file, File target, CopyArtifact copy) throws IOException {
-        try (ZipFile zip = new ZipFile(file)) {
+        try (ZipFileCache.Ref ref = ZipFileCache.getInstance().open(file)) {
+            final ZipFile zip = ref.getJarFile();
             Enumeration<? extends ZipEntry> entries = zip.entries();
             while (entries.hasMoreElements()) {
                 ZipEntry entry = entries.nextElement();
@@ -581,15 +784,90 @@ public class ServerProvisioner {
                     if (entry.isDirectory()) {
                         new File(target, copy.relocatedPath(entry.getName())).mkdirs();
                     } else {
-                        try (InputStream in = zip.getInputStream(entry)) {
-                            FileUtils.copyFile(in, new File(target, copy.relocatedPath(entry.getName())));
+                        final File targetFile = new File(target, copy.relocatedPath(entry.getName()));
+                        final String source = ProvisioningManifest.zipEntrySource(file, entry);
+                        if (!isUpToDate(targetFile, source)) {
+                            try (InputStream in = zip.getInputStream(entry)) {
+                                FileUtils.copyFile(in, targetFile);
+                            }
+                            metrics.fileCreated(entry.getCompressedSize(), targetFile.length());
                         }
+                        addToManifest(targetFile, source);
                     }
                 }
             }
         }
     }
 
+    /**
+     * Extracts a feature pack file, unless it is up to date.
+     * @param jar
+     * @param jarEntryName
+     * @param targetFile
+     * @throws IOException
+     */
+    private void extractFile(JarFile jar, String jarEntryName, File targetFile) throws IOException {
+        final ZipEntry entry = jar.getEntry(jarEntryName);
+        final String source = ProvisioningManifest.zipEntrySource(new File(jar.getName()), entry);
+        if (!isUpToDate(targetFile, source)) {
+            FileUtils.extractFile(jar, jarEntryName, targetFile);
+            if (!entry.isDirectory()) {
+                metrics.fileCreated(entry.getCompressedSize(), targetFile.length());
+            }
+        }
+        if (!targetFile.isDirectory()) {
+            addToManifest(targetFile, source);
+        }
+    }
+
+    /**
+     * Materializes an artifact file with the provisioner's strategy, and records its metrics, i.e. linked files are not read nor written.
+     * @param artifactFile
+     * @param target
+     * @throws IOException
+     */
+    private void materialize(File artifactFile, File target) throws IOException {
+        artifactMaterializer.materialize(artifactFile, target);
+        final long bytes = materializationStrategy == MaterializationStrategy.COPY ? artifactFile.length() : 0;
+        metrics.fileCreated(bytes, bytes);
+    }
+
+    private boolean isUpToDate(File file, String source) {
+        return manifest != null && manifest.isUpToDate(outputDirectory, getManifestPath(file), source);
+    }
+
+    private void addToManifest(File file, String source) {
+        if (manifest != null) {
+            manifest.add(outputDirectory, getManifestPath(file), source);
+        }
+    }
+
+    private String getManifestPath(File file) {
+        return outputDirectory.getAbsoluteFile().toPath().relativize(file.getAbsoluteFile().toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Removes the files provisioned by the previous run which were not provisioned by this one, and the dirs left empty.
+     * @throws IOException
+     */
+    private void removeObsoleteFiles() throws IOException {
+        final Path baseDir = outputDirectory.getAbsoluteFile().toPath();
+        for (String obsoleteFile : manifest.getObsoleteFiles()) {
+            getLog().debugf("Removing obsolete file %s", obsoleteFile);
+            Path path = baseDir.resolve(obsoleteFile);
+            Files.deleteIfExists(path);
+            path = path.getParent();
+            while (path != null && !path.equals(baseDir) && path.startsWith(baseDir)) {
+                final String[] children = path.toFile().list();
+                if (children == null || children.length != 0) {
+                    break;
+                }
+                Files.delete(path);
+                path = path.getParent();
+            }
+        }
+    }
+
     static Logger getLog() {
         return logger;
     }
@@ -32,6 +32,7 @@ enum Attribute {
     EXTRACT_SCHEMAS("extract-schemas"),
     EXTRACT_SCHEMAS_GROUPS("extract-schemas-groups"),
     EXCLUDE_DEPENDENCIES("exclude-dependencies"),
+    ARTIFACT_MATERIALIZATION("artifact-materialization"),
     PATTERN("pattern"),
     INCLUDE("include"),
     TRANSITIVE("transitive"),
@@ -66,6 +67,7 @@ enum Attribute {
         attributesMap.put(new QName(EXTENSION.getLocalName()), EXTENSION);
         attributesMap.put(new QName(VERSION.getLocalName()), VERSION);
         attributesMap.put(new QName(EXCLUDE_DEPENDENCIES.getLocalName()), EXCLUDE_DEPENDENCIES);
+        attributesMap.put(new QName(ARTIFACT_MATERIALIZATION.getLocalName()), ARTIFACT_MATERIALIZATION);
 
 
         attributes = attributesMap;
@@ -1,8 +1,6 @@
 package org.wildfly.build.provisioning.model;
 
-import org.wildfly.build.util.xml.ParsingUtils;
-
-import java.util.regex.Pattern;
+import org.wildfly.build.util.WildcardMatcher;
 
 /**
  * @author Stuart Douglas
@@ -11,7 +9,7 @@ import java.util.regex.Pattern;
 public class ModuleFilter {
 
     private final String patternString;
-    private final Pattern pattern;
+    private final WildcardMatcher matcher;
     private final boolean include;
     private final boolean transitive;
 
@@ -20,16 +18,16 @@ public class ModuleFilter {
             throw new IllegalArgumentException("null pattern");
         }
         this.patternString = pattern;
-        this.pattern = Pattern.compile(ParsingUtils.wildcardToJavaRegexp(pattern));
+        this.matcher = WildcardMatcher.of(pattern);
         this.include = include;
         this.transitive = transitive;
     }
 
     /**
-     * Returns true if the file matches the regular expression
+     * Returns true if the file matches the wildcard expression
      */
     public boolean matches(final String filePath) {
-        return pattern.matcher(filePath).matches();
+        return matcher.matches(filePath);
     }
 
     public boolean isInclude() {
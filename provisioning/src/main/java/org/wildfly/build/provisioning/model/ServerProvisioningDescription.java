@@ -20,6 +20,7 @@ import org.wildfly.build.common.model.ConfigOverride;
 import org.wildfly.build.common.model.CopyArtifact;
 import org.wildfly.build.common.model.FileFilter;
 import org.wildfly.build.pack.model.Artifact;
+import org.wildfly.build.util.WildcardFilterList;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -40,6 +41,7 @@ public class ServerProvisioningDescription {
     private boolean copyModuleArtifacts;
     private boolean extractSchemas;
     private boolean excludeDependencies;
+    private String artifactMaterialization;
     private Set<String> extractSchemasGroups;
     private Set<FeaturePack> enabledFeaturePacks = new HashSet<>();
 
@@ -76,6 +78,18 @@ public class ServerProvisioningDescription {
         this.excludeDependencies = excludeDependencies;
     }
 
+    /**
+     *
+     * @return the name of the strategy used to materialize artifacts in the server; if null that translates to copy
+     */
+    public String getArtifactMaterialization() {
+        return artifactMaterialization;
+    }
+
+    public void setArtifactMaterialization(String artifactMaterialization) {
+        this.artifactMaterialization = artifactMaterialization;
+    }
+
     public Set<String> getExtractSchemasGroups() {
         return extractSchemasGroups;
     }
@@ -212,7 +226,12 @@ public class ServerProvisioningDescription {
          */
         public static class ModuleFilters {
 
-            private final List<ModuleFilter> filters = new ArrayList<>();
+            private final WildcardFilterList<ModuleFilter> filters = new WildcardFilterList<ModuleFilter>() {
+                @Override
+                protected String getPattern(ModuleFilter filter) {
+                    return filter.getPattern();
+                }
+            };
             private final boolean include;
 
             public ModuleFilters(boolean include) {
@@ -234,6 +253,15 @@ public class ServerProvisioningDescription {
             public boolean isInclude() {
                 return include;
             }
+
+            /**
+             * Retrieves the first filter matching the specified module file.
+             * @param moduleFile the module file path, relative to the modules dir
+             * @return the first matching filter, null if none matches
+             */
+            public ModuleFilter getFilter(String moduleFile) {
+                return filters.firstMatch(moduleFile);
+            }
         }
 
         /**
@@ -241,7 +269,13 @@ public class ServerProvisioningDescription {
          */
         public static class ContentFilters {
 
-            private final List<FileFilter> filters = new ArrayList<>();
+            private final WildcardFilterList<FileFilter> filters = new WildcardFilterList<FileFilter>() {
+                @Override
+                protected String getPattern(FileFilter filter) {
+                    // only the exclude filters are matched
+                    return filter.isInclude() ? null : filter.getPattern();
+                }
+            };
             private final boolean include;
 
             public ContentFilters(boolean include) {
@@ -263,6 +297,15 @@ public class ServerProvisioningDescription {
             public boolean isInclude() {
                 return include;
             }
+
+            /**
+             *
+             * @param contentFile the content file path, relative to the content dir
+             * @return true if content files not filtered should be included, and no exclude filter matches the specified content file
+             */
+            public boolean includeFile(String contentFile) {
+                return include && !filters.matches(contentFile);
+            }
         }
 
         /**
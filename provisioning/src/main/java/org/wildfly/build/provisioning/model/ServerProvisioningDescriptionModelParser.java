@@ -18,9 +18,9 @@ package org.wildfly.build.provisioning.model;
 
 import org.jboss.staxmapper.XMLMapper;
 import org.wildfly.build.util.PropertyResolver;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
@@ -33,8 +33,7 @@ public class ServerProvisioningDescriptionModelParser {
     private static final QName ROOT_1_0 = new QName(ServerProvisioningDescriptionModelParser10.NAMESPACE_1_0, Element.SERVER_PROVISIONING.getLocalName());
     private static final QName ROOT_1_1 = new QName(ServerProvisioningDescriptionModelParser11.NAMESPACE_1_1, Element.SERVER_PROVISIONING.getLocalName());
     private static final QName ROOT_1_2 = new QName(ServerProvisioningDescriptionModelParser12.NAMESPACE_1_2, Element.SERVER_PROVISIONING.getLocalName());
-
-    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+    private static final QName ROOT_1_3 = new QName(ServerProvisioningDescriptionModelParser13.NAMESPACE_1_3, Element.SERVER_PROVISIONING.getLocalName());
 
     private final XMLMapper mapper;
 
@@ -43,23 +42,15 @@ public class ServerProvisioningDescriptionModelParser {
         mapper.registerRootElement(ROOT_1_0, new ServerProvisioningDescriptionModelParser10(properties));
         mapper.registerRootElement(ROOT_1_1, new ServerProvisioningDescriptionModelParser11(properties));
         mapper.registerRootElement(ROOT_1_2, new ServerProvisioningDescriptionModelParser12(properties));
+        mapper.registerRootElement(ROOT_1_3, new ServerProvisioningDescriptionModelParser13(properties));
     }
 
     public ServerProvisioningDescription parse(final InputStream input) throws XMLStreamException {
 
-        final XMLInputFactory inputFactory = INPUT_FACTORY;
-        setIfSupported(inputFactory, XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
-        setIfSupported(inputFactory, XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
-        final XMLStreamReader streamReader = inputFactory.createXMLStreamReader(input);
+        final XMLStreamReader streamReader = XMLStreamFactories.createDescriptionReader(input);
         ServerProvisioningDescription serverProvisioningDescription = new ServerProvisioningDescription();
         mapper.parseDocument(serverProvisioningDescription, streamReader);
         return serverProvisioningDescription;
     }
 
-    private void setIfSupported(final XMLInputFactory inputFactory, final String property, final Object value) {
-        if (inputFactory.isPropertySupported(property)) {
-            inputFactory.setProperty(property, value);
-        }
-    }
-
 }
@@ -29,8 +29,8 @@ import org.wildfly.build.pack.model.Artifact;
 import org.wildfly.build.util.xml.AttributeValue;
 import org.wildfly.build.util.xml.ElementNode;
 import org.wildfly.build.util.xml.TextNode;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.io.File;
@@ -56,7 +56,7 @@ public class ServerProvisioningDescriptionXmlWriter implements XMLElementWriter<
 
     public void writeContent(File file, ServerProvisioningDescription value) throws XMLStreamException, IOException {
         try (FileOutputStream out = new FileOutputStream(file)) {
-            final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+            final XMLStreamWriter writer = XMLStreamFactories.createWriter(out);
             try {
                 writeContent(writer, value);
             } finally {
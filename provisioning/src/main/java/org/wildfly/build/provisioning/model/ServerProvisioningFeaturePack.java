@@ -6,6 +6,7 @@ import org.wildfly.build.common.model.ConfigFileOverride;
 import org.wildfly.build.common.model.ConfigOverride;
 import org.wildfly.build.configassembly.SubsystemConfig;
 import org.wildfly.build.pack.model.FeaturePack;
+import org.wildfly.build.pack.model.ModuleGraph;
 import org.wildfly.build.pack.model.ModuleIdentifier;
 import org.wildfly.build.util.ZipFileSubsystemInputStreamSources;
 
@@ -13,6 +14,7 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -147,31 +149,32 @@ public class ServerProvisioningFeaturePack {
                 }
             }
         } else {
-            // modules filtered
+            // modules filtered, the modules and their dependencies are selected as a set of indexes in the feature pack's module graph
+            final ModuleGraph moduleGraph = featurePack.getModuleGraph();
+            final BitSet includedIndexes = new BitSet(moduleGraph.size());
             for (FeaturePack.Module module : featurePack.getFeaturePackModules().values()) {
                 boolean include = moduleFilters.isInclude();
                 // by default module's dependencies are included
                 boolean transitive = true;
-                for (ModuleFilter moduleFilter : moduleFilters.getFilters()) {
-                    String moduleFile = module.getModuleFile().substring(Locations.MODULES.length() + 1);
-                    if (moduleFilter.matches(moduleFile)) {
-                        if (moduleFilter.isInclude()) {
-                            if (!moduleFilter.isTransitive()) {
-                                transitive = false;
-                            }
-                        } else {
-                            include = false;
+                final ModuleFilter moduleFilter = moduleFilters.getFilter(module.getModuleFile().substring(Locations.MODULES.length() + 1));
+                if (moduleFilter != null) {
+                    if (moduleFilter.isInclude()) {
+                        if (!moduleFilter.isTransitive()) {
+                            transitive = false;
                         }
-                        break;
+                    } else {
+                        include = false;
                     }
                 }
                 if (include) {
-                    includedModules.put(module.getIdentifier(), module);
+                    final int index = moduleGraph.indexOf(module.getIdentifier());
+                    includedIndexes.set(index);
                     if (transitive) {
-                        includedModules.putAll(module.getDependencies());
+                        moduleGraph.addDependencies(index, includedIndexes);
                     }
                 }
             }
+            includedModules.putAll(moduleGraph.getModules(includedIndexes));
         }
         return includedModules;
     }
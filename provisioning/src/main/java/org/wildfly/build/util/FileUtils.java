@@ -24,7 +24,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -53,8 +55,17 @@ public class FileUtils {
         }
     }
 
-    public static void extractSchemas(File file, File outputDirectory) throws IOException {
-        try (ZipFile zip = new ZipFile(file)) {
+    /**
+     * Extracts the files in the specified zip file's 'schema' dir.
+     * @param file
+     * @param outputDirectory
+     * @return the extracted files
+     * @throws IOException
+     */
+    public static List<File> extractSchemas(File file, File outputDirectory) throws IOException {
+        final List<File> result = new ArrayList<>();
+        try (ZipFileCache.Ref ref = ZipFileCache.getInstance().open(file)) {
+            final ZipFile zip = ref.getJarFile();
             // schemas are in dir 'schema'
             if (zip.getEntry("schema") != null) {
                 Enumeration<? extends ZipEntry> entries = zip.entries();
@@ -63,14 +74,17 @@ public class FileUtils {
                     if (!entry.isDirectory()) {
                         String entryName = entry.getName();
                         if (outputDirectory != null && entryName.startsWith("schema/")) {
+                            final File outputFile = new File(outputDirectory, entryName.substring("schema/".length()));
                             try (InputStream in = zip.getInputStream(entry)) {
-                                FileUtils.copyFile(in, new File(outputDirectory, entryName.substring("schema/".length())));
+                                FileUtils.copyFile(in, outputFile);
                             }
+                            result.add(outputFile);
                         }
                     }
                 }
             }
         }
+        return result;
     }
 
     public static void copyFile(final InputStream in, final File dest) throws IOException {
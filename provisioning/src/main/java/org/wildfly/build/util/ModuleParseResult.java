@@ -19,9 +19,6 @@ package org.wildfly.build.util;
 import java.util.ArrayList;
 import java.util.List;
 
-import nu.xom.Attribute;
-import nu.xom.Document;
-
 import org.wildfly.build.pack.model.Artifact;
 import org.wildfly.build.pack.model.ModuleIdentifier;
 
@@ -32,12 +29,10 @@ public class ModuleParseResult {
     final List<ModuleDependency> dependencies = new ArrayList<ModuleDependency>();
     final List<String> resourceRoots = new ArrayList<>();
     final List<ArtifactName> artifacts = new ArrayList<>();
-    final Document document;
     ModuleIdentifier identifier;
     ArtifactName versionArtifactName;
 
-    public ModuleParseResult(final Document document) {
-        this.document = document;
+    public ModuleParseResult() {
     }
 
     public List<ModuleDependency> getDependencies() {
@@ -56,10 +51,6 @@ public class ModuleParseResult {
         return identifier;
     }
 
-    public Document getDocument() {
-        return document;
-    }
-
     public ArtifactName getVersionArtifactName() {
         return versionArtifactName;
     }
@@ -91,12 +82,12 @@ public class ModuleParseResult {
 
         private final String artifactCoords;
         private final String options;
-        private final Attribute attribute;
+        private final String value;
 
-        public ArtifactName(String artifactCoords, String options, final Attribute attribute) {
+        public ArtifactName(String artifactCoords, String options, final String value) {
             this.artifactCoords = artifactCoords;
             this.options = options;
-            this.attribute = attribute;
+            this.value = value;
         }
 
         public String getArtifactCoords() {
@@ -107,8 +98,12 @@ public class ModuleParseResult {
             return options;
         }
 
-        public Attribute getAttribute() {
-            return attribute;
+        /**
+         *
+         * @return the module xml attribute value the artifact name was parsed from
+         */
+        public String getValue() {
+            return value;
         }
 
         public String getJBossModulesArtifactString() {
@@ -15,14 +15,12 @@
  */
 package org.wildfly.build.util;
 
-import nu.xom.Attribute;
-import nu.xom.Builder;
-import nu.xom.Document;
-import nu.xom.Element;
-import nu.xom.Elements;
-import nu.xom.ParsingException;
 import org.wildfly.build.pack.model.ModuleIdentifier;
+import org.wildfly.build.util.xml.XMLStreamFactories;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -32,6 +30,8 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
+ * Parses module xml files, keeping only the information needed to provision the modules, i.e. the module identifier,
+ * dependencies, resource roots and artifacts. The module xml is rewritten at provisioning time by a {@link ModuleXmlTransformer}.
  *
  * @author Thomas.Diesler@jboss.com
  * @author Stuart Douglas
@@ -46,93 +46,137 @@ public class ModuleParser {
      */
     private static final Pattern JBOSS_MODULES_VALID_PATTERN = Pattern.compile("^([-_a-zA-Z0-9.]+):([-_a-zA-Z0-9.]+):([-_a-zA-Z0-9.]+)(?::([-_a-zA-Z0-9.]+))?$");
 
-    public static ModuleParseResult parse(Path inputFile) throws IOException, ParsingException {
+    public static ModuleParseResult parse(Path inputFile) throws IOException, XMLStreamException {
         return parse(new BufferedInputStream(new FileInputStream(inputFile.toFile())));
     }
 
-    public static ModuleParseResult parse(final InputStream in) throws IOException, ParsingException {
-        Builder builder = new Builder(false);
-        final Document document;
+    public static ModuleParseResult parse(final InputStream in) throws IOException, XMLStreamException {
+        ModuleParseResult result = new ModuleParseResult();
         try (InputStream in1 = in) {
-            document = builder.build(in1);
-        }
-        ModuleParseResult result = new ModuleParseResult(document);
-        final Element rootElement = document.getRootElement();
-        if (rootElement.getLocalName().equals("module-alias")) {
-            parseModuleAlias(rootElement, result);
-        } else if (rootElement.getLocalName().equals("module")) {
-            parseModule(rootElement, result);
+            final XMLStreamReader reader = XMLStreamFactories.createReader(in1);
+            try {
+                if (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+                    if (reader.getLocalName().equals("module-alias")) {
+                        parseModuleAlias(reader, result);
+                    } else if (reader.getLocalName().equals("module")) {
+                        parseModule(reader, result);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
         }
         return result;
     }
 
-    private static void parseModule(Element element, ModuleParseResult result) {
-        String name = element.getAttributeValue("name");
-        String slot = getOptionalAttributeValue(element, "slot", "main");
+    /**
+     * Moves the reader to the next start or end element.
+     * @param reader
+     * @return the event type, or END_DOCUMENT if there are no more elements
+     * @throws XMLStreamException
+     */
+    private static int nextElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            final int type = reader.next();
+            if (type == XMLStreamConstants.START_ELEMENT || type == XMLStreamConstants.END_ELEMENT) {
+                return type;
+            }
+        }
+        return XMLStreamConstants.END_DOCUMENT;
+    }
+
+    /**
+     * Skips the current element, including its children.
+     * @param reader
+     * @throws XMLStreamException
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int type = nextElement(reader);
+            if (type == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (type == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void parseModule(XMLStreamReader reader, ModuleParseResult result) throws XMLStreamException {
+        String name = reader.getAttributeValue(null, "name");
+        String slot = getOptionalAttributeValue(reader, "slot", "main");
         result.identifier = new ModuleIdentifier(name, slot);
-        final Attribute versionAttribute = element.getAttribute("version");
-        if (versionAttribute != null) {
-            result.versionArtifactName = parseOptionalArtifactName(versionAttribute.getValue(), versionAttribute);
+        final String version = reader.getAttributeValue(null, "version");
+        if (version != null) {
+            result.versionArtifactName = parseOptionalArtifactName(version);
+        }
+        boolean dependenciesParsed = false;
+        boolean resourcesParsed = false;
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            if (!dependenciesParsed && reader.getLocalName().equals("dependencies")) {
+                parseDependencies(reader, result);
+                dependenciesParsed = true;
+            } else if (!resourcesParsed && reader.getLocalName().equals("resources")) {
+                parseResources(reader, result);
+                resourcesParsed = true;
+            } else {
+                skipElement(reader);
+            }
         }
-        final Element dependencies = element.getFirstChildElement("dependencies", element.getNamespaceURI());
-        if (dependencies != null) parseDependencies(dependencies, result);
-        final Element resources = element.getFirstChildElement("resources", element.getNamespaceURI());
-        if (resources != null) parseResources(resources, result);
     }
 
-    private static String getOptionalAttributeValue(Element element, String name, String defVal) {
-        final String value = element.getAttributeValue(name);
+    private static String getOptionalAttributeValue(XMLStreamReader reader, String name, String defVal) {
+        final String value = reader.getAttributeValue(null, name);
         return value == null ? defVal : value;
     }
 
-    private static void parseModuleAlias(Element element, ModuleParseResult result) {
-        final String targetName = getOptionalAttributeValue(element, "target-name", "");
-        final String targetSlot = getOptionalAttributeValue(element, "target-slot", "main");
-        final String name = element.getAttributeValue("name");
-        final String slot = getOptionalAttributeValue(element, "slot", "main");
+    private static void parseModuleAlias(XMLStreamReader reader, ModuleParseResult result) {
+        final String targetName = getOptionalAttributeValue(reader, "target-name", "");
+        final String targetSlot = getOptionalAttributeValue(reader, "target-slot", "main");
+        final String name = reader.getAttributeValue(null, "name");
+        final String slot = getOptionalAttributeValue(reader, "slot", "main");
         ModuleIdentifier moduleId = new ModuleIdentifier(targetName, targetSlot);
         result.identifier = new ModuleIdentifier(name, slot);
         result.dependencies.add(new ModuleParseResult.ModuleDependency(moduleId, false));
     }
 
-    private static void parseDependencies(Element element, ModuleParseResult result) {
-        final Elements modules = element.getChildElements("module", element.getNamespaceURI());
-        final int size = modules.size();
-        for (int i = 0; i < size; i ++) {
-            final Element moduleElement = modules.get(i);
-            String name = getOptionalAttributeValue(moduleElement, "name", "");
-            String slot = getOptionalAttributeValue(moduleElement, "slot", "main");
-            boolean optional = Boolean.parseBoolean(getOptionalAttributeValue(moduleElement, "optional", "false"));
-            ModuleIdentifier moduleId = new ModuleIdentifier(name, slot);
-            result.dependencies.add(new ModuleParseResult.ModuleDependency(moduleId, optional));
+    private static void parseDependencies(XMLStreamReader reader, ModuleParseResult result) throws XMLStreamException {
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            if (reader.getLocalName().equals("module")) {
+                String name = getOptionalAttributeValue(reader, "name", "");
+                String slot = getOptionalAttributeValue(reader, "slot", "main");
+                boolean optional = Boolean.parseBoolean(getOptionalAttributeValue(reader, "optional", "false"));
+                ModuleIdentifier moduleId = new ModuleIdentifier(name, slot);
+                result.dependencies.add(new ModuleParseResult.ModuleDependency(moduleId, optional));
+            }
+            skipElement(reader);
         }
     }
 
-    private static void parseResources(Element element, ModuleParseResult result) {
-        final Elements children = element.getChildElements();
-        final int size = children.size();
-        for (int i = 0; i < size; i ++) {
-            final Element child = children.get(i);
-            switch (child.getLocalName()) {
+    private static void parseResources(XMLStreamReader reader, ModuleParseResult result) throws XMLStreamException {
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
                 case "resource-root": {
-                    String path = child.getAttributeValue("path");
+                    String path = reader.getAttributeValue(null, "path");
                     if (path != null) result.resourceRoots.add(path);
                     break;
                 }
                 case "artifact": {
-                    final Attribute attribute = child.getAttribute("name");
-                    if (attribute != null) {
-                        final String nameStr = attribute.getValue();
-                        result.artifacts.add(parseArtifactName(nameStr, attribute));
-                        break;
+                    final String nameStr = reader.getAttributeValue(null, "name");
+                    if (nameStr != null) {
+                        result.artifacts.add(parseArtifactName(nameStr));
                     }
+                    break;
                 }
             }
+            skipElement(reader);
         }
     }
 
-    private static ModuleParseResult.ArtifactName parseArtifactName(String artifactName, final Attribute attribute) {
-        final ModuleParseResult.ArtifactName name = parseOptionalArtifactName(artifactName, attribute);
+    private static ModuleParseResult.ArtifactName parseArtifactName(String artifactName) {
+        final ModuleParseResult.ArtifactName name = parseOptionalArtifactName(artifactName);
         if (name == null) {
             //this happens if the artifact is not enclosed in a ${} match
             //we still support this, as long as a hard coded version is present
@@ -150,14 +194,14 @@ public class ModuleParser {
                     sb.append(matcher.group(4));
                 }
                 sb.append(":").append(matcher.group(3));
-                return new ModuleParseResult.ArtifactName(sb.toString(), null, attribute);
+                return new ModuleParseResult.ArtifactName(sb.toString(), null, artifactName);
             }
-            return new ModuleParseResult.ArtifactName(artifactName, null, attribute);
+            return new ModuleParseResult.ArtifactName(artifactName, null, artifactName);
         }
         return name;
     }
 
-    private static ModuleParseResult.ArtifactName parseOptionalArtifactName(String artifactName, final Attribute attribute) {
+    private static ModuleParseResult.ArtifactName parseOptionalArtifactName(String artifactName) {
         if (artifactName.startsWith("${") && artifactName.endsWith("}")) {
             String ct = artifactName.substring(2, artifactName.length() - 1);
             String options = null;
@@ -167,7 +211,7 @@ public class ModuleParser {
                 options = split[1];
                 artifactCoords = split[0];
             }
-            return new ModuleParseResult.ArtifactName(artifactCoords, options, attribute);
+            return new ModuleParseResult.ArtifactName(artifactCoords, options, artifactName);
         } else {
             return null;
         }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.build.util;
+
+import org.wildfly.build.util.xml.XMLStreamFactories;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.DTD;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites a module xml, as a stream of xml events, replacing the artifact names, resources and version of the module
+ * parsed into a {@link ModuleParseResult}. The artifact elements are matched with the parse result artifacts by
+ * document order, the same order used by the {@link ModuleParser}, and a module xml which does not match its parse
+ * result fails the transformation.
+ */
+public class ModuleXmlTransformer {
+
+    private static final String ENCODING = "UTF-8";
+
+    private final ModuleParseResult moduleParseResult;
+    private final Map<ModuleParseResult.ArtifactName, String> artifactNames = new HashMap<>();
+    private final Map<ModuleParseResult.ArtifactName, String> resourceRootPaths = new HashMap<>();
+    private String version;
+
+    public ModuleXmlTransformer(ModuleParseResult moduleParseResult) {
+        this.moduleParseResult = moduleParseResult;
+    }
+
+    /**
+     * Replaces the name of the specified artifact.
+     * @param artifactName
+     * @param name
+     */
+    public void setArtifactName(ModuleParseResult.ArtifactName artifactName, String name) {
+        artifactNames.put(artifactName, name);
+    }
+
+    /**
+     * Replaces the specified artifact with a resource root.
+     * @param artifactName
+     * @param path the resource root path
+     */
+    public void setResourceRoot(ModuleParseResult.ArtifactName artifactName, String path) {
+        resourceRootPaths.put(artifactName, path);
+    }
+
+    /**
+     * Replaces the module version.
+     * @param version
+     */
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    /**
+     * Writes the transformed module xml.
+     * @param in the original module xml
+     * @param out
+     * @throws XMLStreamException
+     */
+    public void transform(InputStream in, OutputStream out) throws XMLStreamException {
+        final XMLEventReader reader = XMLStreamFactories.createEventReader(in);
+        try {
+            final XMLStreamWriter writer = XMLStreamFactories.createWriter(out, ENCODING);
+            try {
+                final List<ModuleParseResult.ArtifactName> artifacts = moduleParseResult.getArtifacts();
+                int depth = 0;
+                boolean module = false;
+                boolean resources = false;
+                boolean resourcesParsed = false;
+                int artifactIndex = 0;
+                while (reader.hasNext()) {
+                    final XMLEvent event = reader.nextEvent();
+                    switch (event.getEventType()) {
+                        case XMLStreamConstants.START_DOCUMENT: {
+                            // the output is always encoded with UTF-8
+                            final String version = ((StartDocument) event).getVersion();
+                            writer.writeStartDocument(ENCODING, version != null ? version : "1.0");
+                            writer.writeCharacters("\n");
+                            break;
+                        }
+                        case XMLStreamConstants.START_ELEMENT: {
+                            final StartElement startElement = event.asStartElement();
+                            final String localName = startElement.getName().getLocalPart();
+                            String elementName = localName;
+                            String attributeName = null;
+                            String newAttributeName = null;
+                            String newAttributeValue = null;
+                            depth++;
+                            if (depth == 1) {
+                                module = localName.equals("module");
+                                if (module && version != null) {
+                                    attributeName = newAttributeName = "version";
+                                    newAttributeValue = version;
+                                }
+                            } else if (depth == 2) {
+                                // as the parser, only the first resources element is considered
+                                resources = module && !resourcesParsed && localName.equals("resources");
+                                resourcesParsed |= resources;
+                            } else if (depth == 3 && resources && localName.equals("artifact") && startElement.getAttributeByName(new QName("name")) != null) {
+                                final String name = startElement.getAttributeByName(new QName("name")).getValue();
+                                if (artifactIndex >= artifacts.size() || !artifacts.get(artifactIndex).getValue().equals(name)) {
+                                    throw new XMLStreamException("Artifact " + name + " not found in the module's parse result, at index " + artifactIndex, startElement.getLocation());
+                                }
+                                final ModuleParseResult.ArtifactName artifactName = artifacts.get(artifactIndex++);
+                                final String resourceRootPath = resourceRootPaths.get(artifactName);
+                                attributeName = "name";
+                                if (resourceRootPath != null) {
+                                    elementName = "resource-root";
+                                    newAttributeName = "path";
+                                    newAttributeValue = resourceRootPath;
+                                } else {
+                                    newAttributeName = "name";
+                                    newAttributeValue = artifactNames.get(artifactName);
+                                }
+                            }
+                            // elements without content are written as empty elements
+                            final boolean empty = reader.peek() != null && reader.peek().isEndElement();
+                            writeStartElement(writer, startElement, elementName, empty);
+                            final Iterator<?> attributes = startElement.getAttributes();
+                            while (attributes.hasNext()) {
+                                final Attribute attribute = (Attribute) attributes.next();
+                                final QName name = attribute.getName();
+                                if (newAttributeValue != null && name.getNamespaceURI().isEmpty() && name.getLocalPart().equals(attributeName)) {
+                                    writer.writeAttribute(newAttributeName, newAttributeValue);
+                                } else if (name.getNamespaceURI().isEmpty()) {
+                                    writer.writeAttribute(name.getLocalPart(), attribute.getValue());
+                                } else {
+                                    writer.writeAttribute(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(), attribute.getValue());
+                                }
+                            }
+                            if (empty) {
+                                reader.nextEvent();
+                                depth--;
+                            }
+                            break;
+                        }
+                        case XMLStreamConstants.END_ELEMENT:
+                            writer.writeEndElement();
+                            depth--;
+                            if (depth == 0) {
+                                writer.writeCharacters("\n");
+                            }
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.SPACE:
+                            // whitespace outside of the root element is replaced by new lines
+                            if (depth > 0) {
+                                writer.writeCharacters(event.asCharacters().getData());
+                            }
+                            break;
+                        case XMLStreamConstants.CDATA:
+                            writer.writeCData(event.asCharacters().getData());
+                            break;
+                        case XMLStreamConstants.COMMENT:
+                            writer.writeComment(((Comment) event).getText());
+                            if (depth == 0) {
+                                writer.writeCharacters("\n");
+                            }
+                            break;
+                        case XMLStreamConstants.PROCESSING_INSTRUCTION: {
+                            final ProcessingInstruction processingInstruction = (ProcessingInstruction) event;
+                            writer.writeProcessingInstruction(processingInstruction.getTarget(), processingInstruction.getData());
+                            if (depth == 0) {
+                                writer.writeCharacters("\n");
+                            }
+                            break;
+                        }
+                        case XMLStreamConstants.DTD:
+                            writer.writeDTD(((DTD) event).getDocumentTypeDeclaration());
+                            writer.writeCharacters("\n");
+                            break;
+                        case XMLStreamConstants.END_DOCUMENT:
+                            writer.writeEndDocument();
+                            break;
+                    }
+                }
+                writer.flush();
+            } finally {
+                writer.close();
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void writeStartElement(XMLStreamWriter writer, StartElement startElement, String localName, boolean empty) throws XMLStreamException {
+        final QName name = startElement.getName();
+        if (empty) {
+            writer.writeEmptyElement(name.getPrefix(), localName, name.getNamespaceURI());
+        } else {
+            writer.writeStartElement(name.getPrefix(), localName, name.getNamespaceURI());
+        }
+        final Iterator<?> namespaces = startElement.getNamespaces();
+        while (namespaces.hasNext()) {
+            final Namespace namespace = (Namespace) namespaces.next();
+            if (namespace.isDefaultNamespaceDeclaration()) {
+                writer.writeDefaultNamespace(namespace.getNamespaceURI());
+            } else {
+                writer.writeNamespace(namespace.getPrefix(), namespace.getNamespaceURI());
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.util;
+
+import org.jboss.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the subsystem templates contained by zip files, e.g. module artifacts, which is persisted between
+ * provisioning runs, usually next to the local repository. Zip files are indexed by path, size and last modified
+ * time, so that zip files known to not contain subsystem templates, i.e. almost all module artifacts, don't need to be
+ * opened again.
+ *
+ * Each zip file is stored as a line of tab separated fields, with the subsystem templates joined by commas. The
+ * separators, line breaks and escape character in paths and template names are percent encoded.
+ *
+ * This class is thread safe.
+ */
+public class SubsystemTemplateIndex {
+
+    private static final Logger logger = Logger.getLogger(SubsystemTemplateIndex.class);
+
+    private static final String HEADER = "# subsystem template index 1.1";
+
+    private static final char SEPARATOR = '\t';
+
+    private static final char TEMPLATE_SEPARATOR = ',';
+
+    private static final char ESCAPE = '%';
+
+    private final File indexFile;
+    private final Map<String, Entry> entries;
+    private volatile boolean modified;
+
+    private SubsystemTemplateIndex(File indexFile, Map<String, Entry> entries) {
+        this.indexFile = indexFile;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the index stored in the specified file. A missing or invalid index file results in an empty index.
+     * @param indexFile the index file, if null the index is not persisted
+     * @return
+     */
+    public static SubsystemTemplateIndex load(File indexFile) {
+        final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        if (indexFile != null && indexFile.isFile()) {
+            try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+                if (!HEADER.equals(reader.readLine())) {
+                    throw new IOException("unknown index format");
+                }
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // path, size, last modified, subsystem templates
+                    final String[] split = line.split(String.valueOf(SEPARATOR), -1);
+                    if (split.length != 4) {
+                        throw new IOException("invalid line: " + line);
+                    }
+                    final List<String> subsystemTemplates;
+                    if (split[3].isEmpty()) {
+                        subsystemTemplates = Collections.emptyList();
+                    } else {
+                        final String[] names = split[3].split(String.valueOf(TEMPLATE_SEPARATOR), -1);
+                        for (int i = 0; i < names.length; i++) {
+                            names[i] = unescape(names[i]);
+                        }
+                        subsystemTemplates = Collections.unmodifiableList(Arrays.asList(names));
+                    }
+                    entries.put(unescape(split[0]), new Entry(Long.parseLong(split[1]), Long.parseLong(split[2]), subsystemTemplates));
+                }
+            } catch (IOException | RuntimeException e) {
+                // the index is just a cache, rebuild it
+                logger.debugf(e, "Ignoring subsystem template index %s", indexFile);
+                entries.clear();
+            }
+        }
+        return new SubsystemTemplateIndex(indexFile, entries);
+    }
+
+    /**
+     * Retrieves the subsystem templates contained by the specified zip file.
+     * @param zipFile
+     * @return the names of the subsystem templates, relative to the zip file's subsystem-templates directory; null if the zip file, in its current state, is not indexed
+     */
+    public List<String> getSubsystemTemplates(File zipFile) {
+        final Entry entry = entries.get(zipFile.getAbsolutePath());
+        if (entry == null || entry.size != zipFile.length() || entry.lastModified != zipFile.lastModified()) {
+            return null;
+        }
+        return entry.subsystemTemplates;
+    }
+
+    /**
+     * Indexes the subsystem templates contained by the specified zip file.
+     * @param zipFile
+     * @param subsystemTemplates the names of the subsystem templates, relative to the zip file's subsystem-templates directory
+     */
+    public void putSubsystemTemplates(File zipFile, List<String> subsystemTemplates) {
+        final List<String> value = subsystemTemplates.isEmpty() ? Collections.<String>emptyList() : Collections.unmodifiableList(new ArrayList<>(subsystemTemplates));
+        entries.put(zipFile.getAbsolutePath(), new Entry(zipFile.length(), zipFile.lastModified(), value));
+        modified = true;
+    }
+
+    /**
+     * Stores the index, if it was modified, and it has an index file. Entries of zip files which no longer exist are dropped.
+     * @throws IOException
+     */
+    public void store() throws IOException {
+        if (indexFile == null || !modified) {
+            return;
+        }
+        final Path indexPath = indexFile.toPath();
+        Files.createDirectories(indexPath.getParent());
+        // write to a temp file and then move it, so that concurrent runs never read a partial index
+        final Path tempFile = Files.createTempFile(indexPath.getParent(), indexPath.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                writer.append(HEADER);
+                writer.newLine();
+                for (Map.Entry<String, Entry> mapEntry : new TreeMap<>(entries).entrySet()) {
+                    if (!new File(mapEntry.getKey()).isFile()) {
+                        continue;
+                    }
+                    final Entry entry = mapEntry.getValue();
+                    writer.append(escape(mapEntry.getKey())).append(SEPARATOR)
+                            .append(String.valueOf(entry.size)).append(SEPARATOR)
+                            .append(String.valueOf(entry.lastModified)).append(SEPARATOR);
+                    for (int i = 0; i < entry.subsystemTemplates.size(); i++) {
+                        if (i > 0) {
+                            writer.append(TEMPLATE_SEPARATOR);
+                        }
+                        writer.append(escape(entry.subsystemTemplates.get(i)));
+                    }
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(tempFile, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, indexPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            modified = false;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == SEPARATOR || c == TEMPLATE_SEPARATOR || c == ESCAPE || c == '\n' || c == '\r') {
+                if (sb == null) {
+                    sb = new StringBuilder(s.length() + 8).append(s, 0, i);
+                }
+                sb.append(ESCAPE).append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    private static String unescape(String s) throws IOException {
+        int i = s.indexOf(ESCAPE);
+        if (i < 0) {
+            return s;
+        }
+        final StringBuilder sb = new StringBuilder(s.length()).append(s, 0, i);
+        while (i < s.length()) {
+            final char c = s.charAt(i);
+            if (c == ESCAPE) {
+                if (i + 2 >= s.length()) {
+                    throw new IOException("invalid escape: " + s);
+                }
+                final int high = Character.digit(s.charAt(i + 1), 16);
+                final int low = Character.digit(s.charAt(i + 2), 16);
+                if (high < 0 || low < 0) {
+                    throw new IOException("invalid escape: " + s);
+                }
+                sb.append((char) (high << 4 | low));
+                i += 3;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class Entry {
+
+        private final long size;
+        private final long lastModified;
+        private final List<String> subsystemTemplates;
+
+        private Entry(long size, long lastModified, List<String> subsystemTemplates) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.subsystemTemplates = subsystemTemplates;
+        }
+    }
+}
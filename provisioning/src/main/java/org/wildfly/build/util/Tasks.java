@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Executes tasks with an optional worker pool, which is created and shut down by the caller, so that it's shared by
+ * all the tasks of a build.
+ */
+public class Tasks {
+
+    private Tasks() {
+    }
+
+    /**
+     * Executes the specified tasks, concurrently if there is a worker pool, and retrieves their results in task order.
+     * @param executorService the worker pool, null to execute the tasks in the calling thread
+     * @param tasks
+     * @param <T>
+     * @return
+     * @throws Exception the failure of the first failed task, in task order
+     */
+    public static <T> List<T> invokeAll(ExecutorService executorService, List<Callable<T>> tasks) throws Exception {
+        final List<T> results = new ArrayList<>(tasks.size());
+        if (executorService == null || tasks.size() <= 1) {
+            for (Callable<T> task : tasks) {
+                results.add(task.call());
+            }
+        } else {
+            for (Future<T> future : executorService.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ordered list of filters, whose wildcard patterns are matched all at once with a {@link WildcardMatcher}. The
+ * matcher is compiled on first match, and again on first match after the list is modified, in any way, e.g. when a
+ * filter is replaced.
+ *
+ * Matching is thread safe and lock free, modifying the list while it's matched is not, i.e. the filters are expected
+ * to be modified only while the model is parsed or built.
+ *
+ * @param <T> the filter type
+ */
+public abstract class WildcardFilterList<T> extends AbstractList<T> {
+
+    private final List<T> filters = new ArrayList<>();
+    /**
+     * the matcher of the current filters, null if not compiled since the last modification
+     */
+    private volatile Matcher<T> matcher;
+
+    /**
+     *
+     * @param filter
+     * @return the filter's wildcard pattern, null if the filter should not be matched
+     */
+    protected abstract String getPattern(T filter);
+
+    /**
+     * Retrieves the first filter matching the specified path.
+     * @param path
+     * @return the first filter whose pattern matches, null if none matches
+     */
+    public T firstMatch(String path) {
+        final Matcher<T> matcher = getMatcher();
+        final int index = matcher.wildcardMatcher.firstMatch(path);
+        return index != -1 ? matcher.filters.get(index) : null;
+    }
+
+    /**
+     *
+     * @param path
+     * @return true if any filter matches the specified path
+     */
+    public boolean matches(String path) {
+        return getMatcher().wildcardMatcher.matches(path);
+    }
+
+    private Matcher<T> getMatcher() {
+        Matcher<T> matcher = this.matcher;
+        if (matcher == null) {
+            // concurrent first matches may compile it more than once, which is harmless
+            final List<T> matchedFilters = new ArrayList<>(filters.size());
+            final List<String> patterns = new ArrayList<>(filters.size());
+            for (T filter : filters) {
+                final String pattern = getPattern(filter);
+                if (pattern != null) {
+                    matchedFilters.add(filter);
+                    patterns.add(pattern);
+                }
+            }
+            matcher = new Matcher<>(new WildcardMatcher(patterns), matchedFilters);
+            this.matcher = matcher;
+        }
+        return matcher;
+    }
+
+    @Override
+    public T get(int index) {
+        return filters.get(index);
+    }
+
+    @Override
+    public int size() {
+        return filters.size();
+    }
+
+    @Override
+    public T set(int index, T filter) {
+        final T previous = filters.set(index, filter);
+        matcher = null;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, T filter) {
+        filters.add(index, filter);
+        modCount++;
+        matcher = null;
+    }
+
+    @Override
+    public T remove(int index) {
+        final T removed = filters.remove(index);
+        modCount++;
+        matcher = null;
+        return removed;
+    }
+
+    /**
+     * A compiled matcher, with the filters matched, so that a matched index always refers to the filters it was compiled from.
+     */
+    private static class Matcher<T> {
+
+        private final WildcardMatcher wildcardMatcher;
+        private final List<T> filters;
+
+        private Matcher(WildcardMatcher wildcardMatcher, List<T> filters) {
+            this.wildcardMatcher = wildcardMatcher;
+            this.filters = filters;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.util;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Matches paths against an ordered list of wildcard expressions, where {@code *} matches any sequence of characters,
+ * including {@code /}, and {@code ?} matches any single character, i.e. the same semantics as the regular expressions
+ * built by {@link org.wildfly.build.util.xml.ParsingUtils#wildcardToJavaRegexp(String)}, with all other characters
+ * matched literally.
+ *
+ * All expressions are compiled into a single automaton, which is determinized lazily, as paths are matched, so that
+ * finding the first matching expression is a single pass over the path, regardless of the number of expressions.
+ *
+ * This class is thread safe.
+ */
+public class WildcardMatcher {
+
+    /**
+     * the max number of cached automaton states, beyond it states are computed on each match
+     */
+    private static final int MAX_STATES = 4096;
+
+    private static final int ASCII = 128;
+
+    private final char[][] expressions;
+    private final int[] offsets;
+    private final int stateCount;
+    private final ConcurrentMap<BitSet, State> states = new ConcurrentHashMap<>();
+    private final State initialState;
+
+    /**
+     *
+     * @param expressions the wildcard expressions, in match order
+     */
+    public WildcardMatcher(List<String> expressions) {
+        this.expressions = new char[expressions.size()][];
+        this.offsets = new int[expressions.size()];
+        int stateCount = 0;
+        for (int i = 0; i < expressions.size(); i++) {
+            final String expression = expressions.get(i);
+            if (expression == null) {
+                throw new IllegalArgumentException("null expression");
+            }
+            this.expressions[i] = expression.toCharArray();
+            this.offsets[i] = stateCount;
+            // a state for each expression char, plus the accepting state
+            stateCount += this.expressions[i].length + 1;
+        }
+        this.stateCount = stateCount;
+        final BitSet initial = new BitSet(stateCount);
+        for (int i = 0; i < this.expressions.length; i++) {
+            addState(initial, i, 0);
+        }
+        this.initialState = getState(initial);
+    }
+
+    /**
+     *
+     * @param expression
+     * @return a matcher of the specified wildcard expression
+     */
+    public static WildcardMatcher of(String expression) {
+        return new WildcardMatcher(Collections.singletonList(expression));
+    }
+
+    /**
+     * Retrieves the first expression matching the specified path.
+     * @param path
+     * @return the index of the first matching expression, -1 if none matches
+     */
+    public int firstMatch(String path) {
+        State state = initialState;
+        for (int i = 0; i < path.length() && !state.dead; i++) {
+            state = state.next(path.charAt(i));
+        }
+        return state.match;
+    }
+
+    /**
+     *
+     * @param path
+     * @return true if any expression matches the specified path
+     */
+    public boolean matches(String path) {
+        return firstMatch(path) != -1;
+    }
+
+    /**
+     * Adds the state at the specified position of an expression, and the states reachable without consuming chars, i.e. after trailing *s.
+     */
+    private void addState(BitSet states, int expression, int position) {
+        final char[] chars = expressions[expression];
+        while (true) {
+            states.set(offsets[expression] + position);
+            if (position < chars.length && chars[position] == '*') {
+                position++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private State getState(BitSet nfaStates) {
+        State state = states.get(nfaStates);
+        if (state == null) {
+            if (states.size() < MAX_STATES) {
+                state = new State(nfaStates, true);
+                final State existing = states.putIfAbsent(nfaStates, state);
+                if (existing != null) {
+                    state = existing;
+                }
+            } else {
+                state = new State(nfaStates, false);
+            }
+        }
+        return state;
+    }
+
+    private State computeNext(State state, char c) {
+        final BitSet next = new BitSet(stateCount);
+        final BitSet current = state.nfaStates;
+        int expression = 0;
+        for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1)) {
+            while (expression + 1 < offsets.length && offsets[expression + 1] <= i) {
+                expression++;
+            }
+            final char[] chars = expressions[expression];
+            final int position = i - offsets[expression];
+            if (position == chars.length) {
+                continue;
+            }
+            final char expected = chars[position];
+            if (expected == '*') {
+                addState(next, expression, position);
+            } else if (expected == '?' || expected == c) {
+                addState(next, expression, position + 1);
+            }
+        }
+        return getState(next);
+    }
+
+    /**
+     * A state of the deterministic automaton, i.e. a set of states of the expressions' automaton.
+     */
+    private class State {
+
+        private final BitSet nfaStates;
+        private final boolean cached;
+        private final boolean dead;
+        private final int match;
+        private final AtomicReferenceArray<State> asciiTransitions = new AtomicReferenceArray<>(ASCII);
+        private final ConcurrentMap<Character, State> transitions = new ConcurrentHashMap<>();
+
+        private State(BitSet nfaStates, boolean cached) {
+            this.nfaStates = nfaStates;
+            this.cached = cached;
+            this.dead = nfaStates.isEmpty();
+            int match = -1;
+            for (int i = 0; i < expressions.length; i++) {
+                if (nfaStates.get(offsets[i] + expressions[i].length)) {
+                    match = i;
+                    break;
+                }
+            }
+            this.match = match;
+        }
+
+        private State next(char c) {
+            State next = c < ASCII ? asciiTransitions.get(c) : transitions.get(c);
+            if (next == null) {
+                next = computeNext(this, c);
+                // transitions to states which are not cached are not retained, to bound the automaton's memory
+                if (!next.cached) {
+                    return next;
+                }
+                if (c < ASCII) {
+                    asciiTransitions.set(c, next);
+                } else {
+                    transitions.put(c, next);
+                }
+            }
+            return next;
+        }
+    }
+}
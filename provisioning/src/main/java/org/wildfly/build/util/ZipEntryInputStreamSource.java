@@ -20,7 +20,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 /**
  * @author Eduardo Martins
@@ -37,9 +36,9 @@ public class ZipEntryInputStreamSource implements InputStreamSource {
 
     @Override
     public InputStream getInputStream() throws IOException {
-        final ZipFile zipFile = new ZipFile(file);
+        final ZipFileCache.Ref zipFile = ZipFileCache.getInstance().open(file);
         try {
-            return new ZipEntryInputStream(zipFile, zipFile.getInputStream(zipEntry));
+            return new ZipEntryInputStream(zipFile, zipFile.getJarFile().getInputStream(zipEntry));
         } catch (Throwable t) {
             try {
                 zipFile.close();
@@ -52,10 +51,10 @@ public class ZipEntryInputStreamSource implements InputStreamSource {
 
     private static class ZipEntryInputStream extends InputStream {
 
-        private final ZipFile zipFile;
+        private final ZipFileCache.Ref zipFile;
         private final InputStream zipEntryInputStream;
 
-        ZipEntryInputStream(ZipFile zipFile, InputStream zipEntryInputStream) {
+        ZipEntryInputStream(ZipFileCache.Ref zipFile, InputStream zipEntryInputStream) {
             this.zipFile = zipFile;
             this.zipEntryInputStream = zipEntryInputStream;
         }
@@ -65,6 +64,11 @@ public class ZipEntryInputStreamSource implements InputStreamSource {
             return zipEntryInputStream.read();
         }
 
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return zipEntryInputStream.read(b, off, len);
+        }
+
         @Override
         public int available() throws IOException {
             return zipEntryInputStream.available();
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.build.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarFile;
+
+/**
+ * A cache of open zip (and jar) files, which allows the central directory of each archive read by the build and
+ * provisioning tools to be parsed only once.
+ *
+ * Cached files are reference counted, each {@link #open(File)} must be matched by closing the returned {@link Ref}.
+ * The number of open files is bounded, files not in use are closed in least recently used order once that bound is
+ * exceeded, or when {@link #clear()} is invoked at the end of a build. A cached file is reopened if the file changed
+ * on disk.
+ *
+ * This class is thread safe.
+ */
+public class ZipFileCache {
+
+    private static final ZipFileCache INSTANCE = new ZipFileCache(Integer.getInteger("wildfly.build.zip-file-cache.max-open-files", 64));
+
+    /**
+     *
+     * @return the cache shared by all build and provisioning components
+     */
+    public static ZipFileCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final int maxOpenFiles;
+
+    // access ordered, i.e. the first entry is the least recently used
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong openCount = new AtomicLong();
+
+    public ZipFileCache(int maxOpenFiles) {
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    /**
+     * Retrieves the specified zip file, opening it if not cached.
+     * @param file
+     * @return a reference to the open zip file, which should be closed once the zip file is not needed anymore
+     * @throws IOException if the file could not be opened
+     */
+    public Ref open(File file) throws IOException {
+        final String path = file.getAbsolutePath();
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+        synchronized (this) {
+            final Entry entry = entries.get(path);
+            if (entry != null) {
+                if (entry.length == length && entry.lastModified == lastModified) {
+                    entry.references++;
+                    return new Ref(entry);
+                }
+                // the file changed
+                remove(path, entry);
+            }
+        }
+        // open outside the lock, parsing the central directory may take a while
+        final Entry newEntry = new Entry(new JarFile(file, false), length, lastModified);
+        openCount.incrementAndGet();
+        final Entry entry;
+        synchronized (this) {
+            final Entry concurrentEntry = entries.get(path);
+            if (concurrentEntry != null && concurrentEntry.length == length && concurrentEntry.lastModified == lastModified) {
+                // opened concurrently
+                entry = concurrentEntry;
+            } else {
+                if (concurrentEntry != null) {
+                    remove(path, concurrentEntry);
+                }
+                entries.put(path, newEntry);
+                entry = newEntry;
+            }
+            entry.references++;
+            evictUnused();
+        }
+        if (entry != newEntry) {
+            safeClose(newEntry.jarFile);
+        }
+        return new Ref(entry);
+    }
+
+    /**
+     *
+     * @return the number of zip files opened by the cache, i.e. the cache misses, since its creation
+     */
+    public long getOpenCount() {
+        return openCount.get();
+    }
+
+    /**
+     * Closes all cached files which are not in use.
+     */
+    public synchronized void clear() {
+        final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next().getValue();
+            if (entry.references == 0) {
+                iterator.remove();
+                safeClose(entry.jarFile);
+            }
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.references--;
+        if (entry.references == 0) {
+            if (entry.removed) {
+                safeClose(entry.jarFile);
+            } else {
+                evictUnused();
+            }
+        }
+    }
+
+    private void remove(String path, Entry entry) {
+        entries.remove(path);
+        entry.removed = true;
+        if (entry.references == 0) {
+            safeClose(entry.jarFile);
+        }
+    }
+
+    private void evictUnused() {
+        if (entries.size() <= maxOpenFiles) {
+            return;
+        }
+        final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && entries.size() > maxOpenFiles) {
+            final Entry entry = iterator.next().getValue();
+            if (entry.references == 0) {
+                iterator.remove();
+                safeClose(entry.jarFile);
+            }
+        }
+    }
+
+    private static void safeClose(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (Throwable ignore) {
+        }
+    }
+
+    private static class Entry {
+
+        private final JarFile jarFile;
+        private final long length;
+        private final long lastModified;
+        private int references;
+        private boolean removed;
+
+        private Entry(JarFile jarFile, long length, long lastModified) {
+            this.jarFile = jarFile;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * A reference to a cached zip file.
+     */
+    public class Ref implements Closeable {
+
+        private final Entry entry;
+        private boolean closed;
+
+        private Ref(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         *
+         * @return the zip file, as a jar file, which should not be closed directly
+         */
+        public JarFile getJarFile() {
+            return entry.jarFile;
+        }
+
+        @Override
+        public void close() {
+            synchronized (ZipFileCache.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            release(entry);
+        }
+    }
+}
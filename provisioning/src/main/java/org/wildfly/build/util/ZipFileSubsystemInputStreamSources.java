@@ -23,8 +23,10 @@ import org.wildfly.build.pack.model.FeaturePack;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -64,8 +66,28 @@ public class ZipFileSubsystemInputStreamSources implements SubsystemInputStreamS
      * @throws IOException
      */
     public void addAllSubsystemFileSourcesFromZipFile(File file) throws IOException {
-        try (ZipFile zip = new ZipFile(file)) {
+        addAllSubsystemFileSourcesFromZipFile(file, null);
+    }
+
+    /**
+     * Adds all file sources in the specified zip file, using the specified index to avoid opening zip files without subsystem templates.
+     * @param file
+     * @param subsystemTemplateIndex the index of the subsystem templates in zip files, which is updated if the zip file is not indexed yet; may be null
+     * @throws IOException
+     */
+    public void addAllSubsystemFileSourcesFromZipFile(File file, SubsystemTemplateIndex subsystemTemplateIndex) throws IOException {
+        final List<String> indexedSubsystemTemplates = subsystemTemplateIndex != null ? subsystemTemplateIndex.getSubsystemTemplates(file) : null;
+        if (indexedSubsystemTemplates != null && indexedSubsystemTemplates.isEmpty()) {
+            // nothing to add, no need to open the zip file
+            return;
+        }
+        try (ZipFileCache.Ref ref = ZipFileCache.getInstance().open(file)) {
+            final ZipFile zip = ref.getJarFile();
+            if (indexedSubsystemTemplates != null && addSubsystemFileSources(file, zip, indexedSubsystemTemplates)) {
+                return;
+            }
             // extract subsystem template and schema, if present
+            final List<String> subsystemTemplates = new ArrayList<>();
             if (zip.getEntry("subsystem-templates") != null) {
                 Enumeration<? extends ZipEntry> entries = zip.entries();
                 while (entries.hasMoreElements()) {
@@ -73,12 +95,39 @@ public class ZipFileSubsystemInputStreamSources implements SubsystemInputStreamS
                     if (!entry.isDirectory()) {
                         String entryName = entry.getName();
                         if (entryName.startsWith("subsystem-templates/")) {
-                            addSubsystemFileSource(entryName.substring("subsystem-templates/".length()), file, entry);
+                            String subsystemFileName = entryName.substring("subsystem-templates/".length());
+                            addSubsystemFileSource(subsystemFileName, file, entry);
+                            subsystemTemplates.add(subsystemFileName);
                         }
                     }
                 }
             }
+            if (subsystemTemplateIndex != null) {
+                subsystemTemplateIndex.putSubsystemTemplates(file, subsystemTemplates);
+            }
+        }
+    }
+
+    /**
+     * Adds the file sources for the specified subsystem templates, from the specified zip file.
+     * @param file
+     * @param zip
+     * @param subsystemTemplates
+     * @return true if all subsystem templates were found and added; false otherwise, with none added
+     */
+    private boolean addSubsystemFileSources(File file, ZipFile zip, List<String> subsystemTemplates) {
+        final Map<String, ZipEntry> zipEntries = new HashMap<>();
+        for (String subsystemFileName : subsystemTemplates) {
+            ZipEntry entry = zip.getEntry("subsystem-templates/" + subsystemFileName);
+            if (entry == null) {
+                return false;
+            }
+            zipEntries.put(subsystemFileName, entry);
+        }
+        for (Map.Entry<String, ZipEntry> zipEntry : zipEntries.entrySet()) {
+            addSubsystemFileSource(zipEntry.getKey(), file, zipEntry.getValue());
         }
+        return true;
     }
 
     /**
@@ -89,7 +138,8 @@ public class ZipFileSubsystemInputStreamSources implements SubsystemInputStreamS
      * @throws IOException
      */
     public boolean addSubsystemFileSourceFromZipFile(String subsystem, File file) throws IOException {
-        try (ZipFile zip = new ZipFile(file)) {
+        try (ZipFileCache.Ref ref = ZipFileCache.getInstance().open(file)) {
+            final ZipFile zip = ref.getJarFile();
             String entryName = "subsystem-templates/"+subsystem;
             ZipEntry entry = zip.getEntry(entryName);
             if (entry != null) {
@@ -16,26 +16,32 @@
 package org.wildfly.build.util.xml;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
-import javax.xml.namespace.NamespaceContext;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
 /**
+ * An xml element. To keep the large trees of assembled configs compact, names and namespaces are interned, attributes
+ * are kept in arrays, in insertion order, and the children list is only created once a child is added.
  *
  * @author <a href="kabir.khan@jboss.com">Kabir Khan</a>
  */
 public class ElementNode extends Node {
 
+    private static final String[] NO_ATTRIBUTE_NAMES = new String[0];
+    private static final AttributeValue[] NO_ATTRIBUTE_VALUES = new AttributeValue[0];
+
     private final ElementNode parent;
     private final String name;
     private final String namespace;
-    private final Map<String, AttributeValue> attributes = new LinkedHashMap<String, AttributeValue>();
-    private List<Node> children = new ArrayList<Node>();
+    private String[] attributeNames = NO_ATTRIBUTE_NAMES;
+    private AttributeValue[] attributeValues = NO_ATTRIBUTE_VALUES;
+    private int attributeCount;
+    private List<Node> children;
 
     public ElementNode(final ElementNode parent, final String name) {
         this(parent, name, parent.getNamespace());
@@ -43,8 +49,8 @@ public class ElementNode extends Node {
 
     public ElementNode(final ElementNode parent, final String name, final String namespace) {
         this.parent = parent;
-        this.name = name;
-        this.namespace = namespace == null ? namespace : namespace.isEmpty() ? null : namespace;
+        this.name = name.intern();
+        this.namespace = namespace == null ? namespace : namespace.isEmpty() ? null : namespace.intern();
     }
 
     public String getNamespace() {
@@ -56,15 +62,40 @@ public class ElementNode extends Node {
     }
 
     public void addAttribute(String name, AttributeValue value) {
-        attributes.put(name, value);
+        final int index = indexOfAttribute(name);
+        if (index != -1) {
+            // as a map, replace the value but keep the position
+            attributeValues[index] = value;
+            return;
+        }
+        if (attributeCount == attributeNames.length) {
+            final int length = attributeCount == 0 ? 2 : attributeCount * 2;
+            attributeNames = Arrays.copyOf(attributeNames, length);
+            attributeValues = Arrays.copyOf(attributeValues, length);
+        }
+        attributeNames[attributeCount] = name.intern();
+        attributeValues[attributeCount] = value;
+        attributeCount++;
+    }
+
+    private int indexOfAttribute(String name) {
+        for (int i = 0; i < attributeCount; i++) {
+            if (attributeNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     public void addChild(Node child) {
+        if (children == null) {
+            children = new ArrayList<Node>(4);
+        }
         children.add(child);
     }
 
     public Iterator<Node> getChildren() {
-        return children.iterator();
+        return iterateChildren();
     }
 
     public ElementNode getParent() {
@@ -72,15 +103,15 @@ public class ElementNode extends Node {
     }
 
     public Iterator<Node> iterateChildren(){
-        return children.iterator();
+        return children == null ? Collections.<Node>emptyIterator() : children.iterator();
     }
 
     public String getAttributeValue(String name) {
-        AttributeValue av = attributes.get(name);
-        if (av == null) {
+        final int index = indexOfAttribute(name);
+        if (index == -1) {
             return null;
         }
-        return av.getValue();
+        return attributeValues[index].getValue();
     }
 
     public String getAttributeValue(String name, String defaultValue) {
@@ -95,7 +126,31 @@ public class ElementNode extends Node {
     public void marshall(XMLStreamWriter writer) throws XMLStreamException {
 //        boolean empty = false;//children.isEmpty()
         boolean empty = isEmpty();
-        NamespaceContext context = writer.getNamespaceContext();
+        marshallStartElement(writer, empty);
+
+        if (children != null) {
+            for (Node child : children) {
+                child.marshall(writer);
+            }
+        }
+
+        if (!empty) {
+            try {
+                writer.writeEndElement();
+            } catch(XMLStreamException e) {
+                //TODO REMOVE THIS
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Writes the element's start tag, including namespace and attributes, but none of its children.
+     * @param writer
+     * @param empty if true an empty element is written, which should not be ended
+     * @throws XMLStreamException
+     */
+    public void marshallStartElement(XMLStreamWriter writer, boolean empty) throws XMLStreamException {
         String prefix = writer.getNamespaceContext().getPrefix(namespace);
         if (prefix == null) {
             // Unknown namespace; it becomes default
@@ -117,26 +172,13 @@ public class ElementNode extends Node {
             }
         }
 
-        for (Map.Entry<String, AttributeValue> attr : attributes.entrySet()) {
-            writer.writeAttribute(attr.getKey(), attr.getValue().getValue());
-        }
-
-        for (Node child : children) {
-            child.marshall(writer);
-        }
-
-        if (!empty) {
-            try {
-                writer.writeEndElement();
-            } catch(XMLStreamException e) {
-                //TODO REMOVE THIS
-                throw e;
-            }
+        for (int i = 0; i < attributeCount; i++) {
+            writer.writeAttribute(attributeNames[i], attributeValues[i].getValue());
         }
     }
 
     private boolean isEmpty() {
-        if (children.isEmpty()) {
+        if (children == null || children.isEmpty()) {
             return true;
         }
         for (Node child : children) {
@@ -20,6 +20,12 @@ package org.wildfly.build.util.xml;
  * @author <a href="kabir.khan@jboss.com">Kabir Khan</a>
  */
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -38,7 +44,21 @@ import javax.xml.stream.XMLStreamWriter;
  */
 public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStreamConstants {
     private static final String NO_NAMESPACE = new String();
+    private static final String ENCODING = "UTF-8";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * a new line followed by the indentation of each level, so that each is written with a single call
+     */
+    private static final String[] INDENTS = new String[32];
+    static {
+        final StringBuilder b = new StringBuilder("\n");
+        for (int i = 0; i < INDENTS.length; i++) {
+            INDENTS[i] = b.toString();
+            b.append("    ");
+        }
+    }
     private final XMLStreamWriter delegate;
+    private final Closeable out;
     private int level;
     private int state = START_DOCUMENT;
     private boolean indentEndElement = false;
@@ -46,20 +66,56 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
 
 
     public FormattingXMLStreamWriter(final XMLStreamWriter delegate) {
+        this(delegate, null);
+    }
+
+    private FormattingXMLStreamWriter(final XMLStreamWriter delegate, final Closeable out) {
         this.delegate = delegate;
+        this.out = out;
         unspecifiedNamespaces.push(NO_NAMESPACE);
     }
 
+    /**
+     * Creates a writer of UTF-8 encoded XML to the specified file, through a single buffer, without the overhead of
+     * an intermediate character writer. The file is closed when the writer is closed.
+     * @param file
+     * @return
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static FormattingXMLStreamWriter create(final File file) throws IOException, XMLStreamException {
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        try {
+            return new FormattingXMLStreamWriter(XMLStreamFactories.createWriter(out, ENCODING), out);
+        } catch (XMLStreamException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
     private void nl() throws XMLStreamException {
-        delegate.writeCharacters("\n");
+        delegate.writeCharacters(INDENTS[0]);
     }
 
-    private void indent() throws XMLStreamException {
-        int level = this.level;
-        final XMLStreamWriter delegate = this.delegate;
-        for (int i = 0; i < level; i ++) {
-            delegate.writeCharacters("    ");
+    /**
+     * Writes a new line followed by the indentation of the current level.
+     */
+    private void nlIndent() throws XMLStreamException {
+        delegate.writeCharacters(indentation(level));
+    }
+
+    private static String indentation(final int level) {
+        if (level <= 0) {
+            return INDENTS[0];
+        }
+        if (level < INDENTS.length) {
+            return INDENTS[level];
         }
+        final StringBuilder b = new StringBuilder(INDENTS[INDENTS.length - 1]);
+        for (int i = INDENTS.length - 1; i < level; i++) {
+            b.append("    ");
+        }
+        return b.toString();
     }
 
     public interface ArgRunnable {
@@ -84,8 +140,7 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
         unspecifiedNamespaces.push(namespace);
 
         // If this is a nested element flush the outer
-        nl();
-        indent();
+        nlIndent();
         delegate.writeStartElement(localName);
 
         level++;
@@ -97,8 +152,7 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
         nestUnspecifiedNamespace();
 
         // If this is a nested element flush the outer
-        nl();
-        indent();
+        nlIndent();
         delegate.writeStartElement(namespaceURI, localName);
         level++;
         state = START_ELEMENT;
@@ -109,8 +163,7 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
         nestUnspecifiedNamespace();
 
         // If this is a nested element flush the outer
-        nl();
-        indent();
+        nlIndent();
         delegate.writeStartElement(prefix, namespaceURI, localName);
         level++;
         state = START_ELEMENT;
@@ -118,15 +171,13 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
     }
 
     public void writeEmptyElement(final String namespaceURI, final String localName) throws XMLStreamException {
-        nl();
-        indent();
+        nlIndent();
         delegate.writeEmptyElement(namespaceURI, localName);
         state = END_ELEMENT;
     }
 
     public void writeEmptyElement(final String prefix, final String localName, final String namespaceURI) throws XMLStreamException {
-        nl();
-        indent();
+        nlIndent();
         delegate.writeEmptyElement(prefix, namespaceURI, localName);
         state = END_ELEMENT;
     }
@@ -138,8 +189,7 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
             return;
         }
 
-        nl();
-        indent();
+        nlIndent();
         delegate.writeEmptyElement(localName);
         state = END_ELEMENT;
     }
@@ -148,8 +198,7 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
         level--;
         if (state != START_ELEMENT) {
             if (state != CHARACTERS || indentEndElement) {
-                nl();
-                indent();
+                nlIndent();
                 indentEndElement = false;
             }
             delegate.writeEndElement();
@@ -173,7 +222,20 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
     }
 
     public void close() throws XMLStreamException {
-        delegate.close();
+        if (out == null) {
+            delegate.close();
+        } else {
+            try {
+                delegate.flush();
+                delegate.close();
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    throw new XMLStreamException(e);
+                }
+            }
+        }
         state = END_DOCUMENT;
     }
 
@@ -226,8 +288,7 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
     }
 
     public void writeComment(final String data) throws XMLStreamException {
-        nl();
-        indent();
+        nlIndent();
         final StringBuilder b = new StringBuilder(data.length());
         final Iterator<String> i = Spliterator.over(data, '\n');
         if (! i.hasNext()) {
@@ -239,25 +300,17 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
                 state = COMMENT;
                 return;
             } else {
-                b.append('\n');
-                for (int q = 0; q < level; q++) {
-                    b.append("    ");
-                }
+                final String indentation = indentation(level);
+                b.append(indentation);
                 b.append("  ~ ");
                 b.append(first);
                 do {
-                    b.append('\n');
-                    for (int q = 0; q < level; q++) {
-                        b.append("    ");
-                    }
+                    b.append(indentation);
                     b.append("  ~ ");
                     b.append(i.next());
                 } while (i.hasNext());
             }
-            b.append('\n');
-            for (int q = 0; q < level; q ++) {
-                b.append("    ");
-            }
+            b.append(indentation(level));
             b.append("  ");
             delegate.writeComment(b.toString());
             state = COMMENT;
@@ -265,15 +318,13 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
     }
 
     public void writeProcessingInstruction(final String target) throws XMLStreamException {
-        nl();
-        indent();
+        nlIndent();
         delegate.writeProcessingInstruction(target);
         state = PROCESSING_INSTRUCTION;
     }
 
     public void writeProcessingInstruction(final String target, final String data) throws XMLStreamException {
-        nl();
-        indent();
+        nlIndent();
         delegate.writeProcessingInstruction(target, data);
         state = PROCESSING_INSTRUCTION;
     }
@@ -284,8 +335,7 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
     }
 
     public void writeDTD(final String dtd) throws XMLStreamException {
-        nl();
-        indent();
+        nlIndent();
         delegate.writeDTD(dtd);
         state = DTD;
     }
@@ -317,8 +367,7 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
         if (state != CHARACTERS) {
             String trimmed = text.trim();
             if (trimmed.contains("\n")) {
-                nl();
-                indent();
+                nlIndent();
             } else {
                 delegate.writeCharacters(trimmed);
                 indentEndElement = false;
@@ -331,8 +380,7 @@ public final class FormattingXMLStreamWriter implements XMLStreamWriter, XMLStre
             final String t = iterator.next();
             delegate.writeCharacters(t);
             if (iterator.hasNext()) {
-                nl();
-                indent();
+                nlIndent();
             }
         }
         state = CHARACTERS;
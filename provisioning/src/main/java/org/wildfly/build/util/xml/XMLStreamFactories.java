@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.util.xml;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The StAX factories shared by the parsers and writers of templates, subsystems, modules and configs. Looking up a
+ * factory scans the class path for implementations, which may cost more than parsing the small files read in the
+ * thousands by a provisioning run, thus each factory is looked up once. The factories are configured before being
+ * published and never modified afterwards, so that they may be used concurrently.
+ */
+public final class XMLStreamFactories {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+    private static final XMLInputFactory DESCRIPTION_INPUT_FACTORY = createDescriptionInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private XMLStreamFactories() {
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        return factory;
+    }
+
+    private static XMLInputFactory createDescriptionInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        setIfSupported(factory, XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+        setIfSupported(factory, XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return factory;
+    }
+
+    private static void setIfSupported(final XMLInputFactory inputFactory, final String property, final Object value) {
+        if (inputFactory.isPropertySupported(property)) {
+            inputFactory.setProperty(property, value);
+        }
+    }
+
+    /**
+     *
+     * @param in
+     * @return a non coalescing reader of the specified stream
+     * @throws XMLStreamException
+     */
+    public static XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(in);
+    }
+
+    /**
+     *
+     * @param in
+     * @return a non validating reader of the specified stream, which does not support DTDs, for the feature pack,
+     * feature pack build and server provisioning descriptions
+     * @throws XMLStreamException
+     */
+    public static XMLStreamReader createDescriptionReader(InputStream in) throws XMLStreamException {
+        return DESCRIPTION_INPUT_FACTORY.createXMLStreamReader(in);
+    }
+
+    /**
+     *
+     * @param in
+     * @return a non coalescing event reader of the specified stream
+     * @throws XMLStreamException
+     */
+    public static XMLEventReader createEventReader(InputStream in) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLEventReader(in);
+    }
+
+    /**
+     *
+     * @param out
+     * @return a writer to the specified stream, in the platform's default encoding
+     * @throws XMLStreamException
+     */
+    public static XMLStreamWriter createWriter(OutputStream out) throws XMLStreamException {
+        return OUTPUT_FACTORY.createXMLStreamWriter(out);
+    }
+
+    /**
+     *
+     * @param out
+     * @param encoding
+     * @return a writer to the specified stream, in the specified encoding
+     * @throws XMLStreamException
+     */
+    public static XMLStreamWriter createWriter(OutputStream out, String encoding) throws XMLStreamException {
+        return OUTPUT_FACTORY.createXMLStreamWriter(out, encoding);
+    }
+}
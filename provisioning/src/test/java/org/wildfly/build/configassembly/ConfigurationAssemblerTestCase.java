@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.configassembly;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.build.util.InputStreamSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the assembled configs against golden files, written by the assembler before the template was streamed.
+ */
+public class ConfigurationAssemblerTestCase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testStandalone() throws Exception {
+        final Map<String, Map<String, SubsystemConfig>> subsystemConfigs = new HashMap<>();
+        subsystemConfigs.put("", subsystems(new SubsystemConfig("web.xml", null), new SubsystemConfig("mail.xml", null)));
+        assertEquals(read("standalone-assembled.xml"), assemble("standalone-template.xml", "server", subsystemConfigs));
+    }
+
+    @Test
+    public void testDomain() throws Exception {
+        final Map<String, Map<String, SubsystemConfig>> subsystemConfigs = new HashMap<>();
+        subsystemConfigs.put("default", subsystems(new SubsystemConfig("web.xml", null)));
+        subsystemConfigs.put("full", subsystems(new SubsystemConfig("web.xml", "ha"), new SubsystemConfig("mail.xml", null)));
+        assertEquals(read("domain-assembled.xml"), assemble("domain-template.xml", "domain", subsystemConfigs));
+    }
+
+    private static Map<String, SubsystemConfig> subsystems(SubsystemConfig... subsystems) {
+        final Map<String, SubsystemConfig> map = new LinkedHashMap<>();
+        for (SubsystemConfig subsystem : subsystems) {
+            map.put(subsystem.getSubsystem(), subsystem);
+        }
+        return map;
+    }
+
+    private String assemble(String template, String rootElementName, Map<String, Map<String, SubsystemConfig>> subsystemConfigs) throws Exception {
+        final File outputFile = new File(temporaryFolder.getRoot(), "config.xml");
+        final SubsystemInputStreamSources subsystemInputStreamSources = new SubsystemInputStreamSources() {
+            @Override
+            public InputStreamSource getInputStreamSource(String subsystemFileName) {
+                return resource(subsystemFileName);
+            }
+        };
+        new ConfigurationAssembler(subsystemInputStreamSources, resource(template), rootElementName, subsystemConfigs, outputFile).assemble();
+        return new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private InputStreamSource resource(final String name) {
+        return new InputStreamSource() {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return getClass().getResourceAsStream(name);
+            }
+        };
+    }
+
+    private String read(String name) throws IOException {
+        try (InputStream in = resource(name).getInputStream()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
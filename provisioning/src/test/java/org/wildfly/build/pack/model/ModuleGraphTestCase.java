@@ -0,0 +1,250 @@
+package org.wildfly.build.pack.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.build.util.ModuleParseResult;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the module dependencies computed with the {@link ModuleGraph} against those found by walking the module
+ * dependencies, as done before the graph was introduced.
+ */
+public class ModuleGraphTestCase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDiamond() throws Exception {
+        final FeaturePack featurePack = featurePack("pack", Collections.<FeaturePack>emptyList(),
+                module("a", "b", "c"),
+                module("b", "d"),
+                module("c", "d"),
+                module("d"));
+        assertEquals(identifiers("b", "c", "d"), getDependencies(featurePack, "a"));
+        assertEquals(identifiers("d"), getDependencies(featurePack, "b"));
+        assertEquals(identifiers(), getDependencies(featurePack, "d"));
+        assertDependencies(featurePack);
+    }
+
+    @Test
+    public void testCycle() throws Exception {
+        // the dependencies of a module of the cycle include itself, whatever the module computed first
+        for (String first : new String[] {"a", "b", "d"}) {
+            final FeaturePack featurePack = featurePack("pack-" + first, Collections.<FeaturePack>emptyList(),
+                    module("a", "b"),
+                    module("b", "c"),
+                    module("c", "a"),
+                    module("d", "a"));
+            getDependencies(featurePack, first);
+            assertEquals(identifiers("a", "b", "c"), getDependencies(featurePack, "a"));
+            assertEquals(identifiers("a", "b", "c"), getDependencies(featurePack, "c"));
+            assertEquals(identifiers("a", "b", "c"), getDependencies(featurePack, "d"));
+            assertDependencies(featurePack);
+        }
+    }
+
+    @Test
+    public void testOptionalDependencies() throws Exception {
+        final FeaturePack featurePack = featurePack("pack", Collections.<FeaturePack>emptyList(),
+                module("a", "b?", "missing?"),
+                module("b"),
+                module("c", "missing"),
+                module("d", "a", "c"));
+        // optional dependencies are included if found
+        assertEquals(identifiers("b"), getDependencies(featurePack, "a"));
+        // missing non optional dependencies fail, even when indirect
+        for (String name : new String[] {"c", "d"}) {
+            try {
+                getDependencies(featurePack, name);
+                fail("module " + name + " depends on a missing module");
+            } catch (IllegalStateException e) {
+                assertEquals("Module " + new ModuleIdentifier("missing") + " not found in feature pack " + featurePack + " and dependencies", e.getMessage());
+            }
+        }
+        assertDependencies(featurePack);
+    }
+
+    @Test
+    public void testCrossPackDependencies() throws Exception {
+        final FeaturePack base = featurePack("base", Collections.<FeaturePack>emptyList(),
+                module("x"),
+                module("y", "x"));
+        // the pack's own x has priority over the base one, for the pack's modules only
+        final FeaturePack featurePack = featurePack("pack", Collections.singletonList(base),
+                module("a", "y"),
+                module("x", "z"),
+                module("z"));
+        final Map<ModuleIdentifier, FeaturePack.Module> dependencies = featurePack.getFeaturePackModules().get(new ModuleIdentifier("a")).getDependencies();
+        assertEquals(identifiers("x", "y", "z"), dependencies.keySet());
+        assertSame(base, dependencies.get(new ModuleIdentifier("y")).getFeaturePack());
+        assertSame(featurePack, dependencies.get(new ModuleIdentifier("x")).getFeaturePack());
+        final Map<ModuleIdentifier, FeaturePack.Module> baseDependencies = base.getFeaturePackModules().get(new ModuleIdentifier("y")).getDependencies();
+        assertEquals(identifiers("x"), baseDependencies.keySet());
+        assertSame(base, baseDependencies.get(new ModuleIdentifier("x")).getFeaturePack());
+        assertDependencies(featurePack);
+        assertDependencies(base);
+    }
+
+    @Test
+    public void testRandomGraphs() throws Exception {
+        final Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            final List<FeaturePack> dependencies = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                dependencies.add(featurePack("pack-" + i + "-" + j, new ArrayList<>(dependencies), randomModules(random)));
+            }
+            for (FeaturePack featurePack : dependencies) {
+                assertDependencies(featurePack);
+            }
+        }
+    }
+
+    private static String[] randomModules(Random random) {
+        final int size = 30;
+        final String[] modules = new String[size];
+        for (int i = 0; i < size; i++) {
+            final List<String> dependencies = new ArrayList<>();
+            final int count = random.nextInt(4);
+            for (int j = 0; j < count; j++) {
+                // a few modules not found in any pack
+                String dependency = "m" + random.nextInt(size + 2);
+                if (random.nextInt(4) == 0) {
+                    dependency += "?";
+                }
+                dependencies.add(dependency);
+            }
+            // not all packs have all modules
+            modules[i] = random.nextInt(5) == 0 ? null : module("m" + i, dependencies.toArray(new String[dependencies.size()]));
+        }
+        return modules;
+    }
+
+    /**
+     * Checks the dependencies of all modules of the feature pack and its dependencies against the walk ones.
+     */
+    private static void assertDependencies(FeaturePack featurePack) {
+        for (FeaturePack.Module module : featurePack.getFeaturePackAndDependenciesModules().values()) {
+            Map<ModuleIdentifier, FeaturePack.Module> expected;
+            try {
+                expected = walkDependencies(module);
+            } catch (IllegalStateException e) {
+                // the missing module reported may differ, if there are several
+                try {
+                    module.getDependencies();
+                    fail("dependencies of module " + module.getIdentifier() + " should not be found");
+                } catch (IllegalStateException expectedException) {
+                }
+                continue;
+            }
+            assertEquals(expected, module.getDependencies());
+        }
+        // and through the pack's graph
+        final ModuleGraph moduleGraph = featurePack.getModuleGraph();
+        for (FeaturePack.Module module : featurePack.getFeaturePackModules().values()) {
+            final BitSet indexes = new BitSet();
+            try {
+                moduleGraph.addDependencies(moduleGraph.indexOf(module.getIdentifier()), indexes);
+            } catch (IllegalStateException e) {
+                continue;
+            }
+            assertEquals(walkDependencies(module), moduleGraph.getModules(indexes));
+        }
+    }
+
+    /**
+     * The dependencies walk, before the module graph.
+     */
+    private static Map<ModuleIdentifier, FeaturePack.Module> walkDependencies(FeaturePack.Module module) {
+        final FeaturePack featurePack = module.getFeaturePack();
+        final Map<ModuleIdentifier, FeaturePack.Module> featurePackAndDependenciesModules = featurePack.getFeaturePackAndDependenciesModules();
+        final Map<ModuleIdentifier, FeaturePack.Module> result = new HashMap<>();
+        final Deque<ModuleParseResult.ModuleDependency> remaining = new ArrayDeque<>(module.getModuleParseResult().getDependencies());
+        while (!remaining.isEmpty()) {
+            final ModuleParseResult.ModuleDependency moduleDependency = remaining.pop();
+            final ModuleIdentifier moduleIdentifier = moduleDependency.getModuleId();
+            final FeaturePack.Module dependency = featurePackAndDependenciesModules.get(moduleIdentifier);
+            if (dependency == null) {
+                if (!moduleDependency.isOptional()) {
+                    throw new IllegalStateException("Module " + moduleIdentifier + " not found in feature pack " + featurePack + " and dependencies");
+                }
+            } else if (!result.containsKey(moduleIdentifier)) {
+                result.put(moduleIdentifier, dependency);
+                remaining.addAll(dependency.getModuleParseResult().getDependencies());
+            }
+        }
+        return result;
+    }
+
+    private static Set<ModuleIdentifier> getDependencies(FeaturePack featurePack, String name) {
+        return featurePack.getFeaturePackModules().get(new ModuleIdentifier(name)).getDependencies().keySet();
+    }
+
+    private static Set<ModuleIdentifier> identifiers(String... names) {
+        final Set<ModuleIdentifier> identifiers = new HashSet<>();
+        for (String name : names) {
+            identifiers.add(new ModuleIdentifier(name));
+        }
+        return identifiers;
+    }
+
+    /**
+     *
+     * @param name
+     * @param dependencies the module's dependencies, optional ones ending with '?'
+     * @return the module xml
+     */
+    private static String module(String name, String... dependencies) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<module xmlns=\"urn:jboss:module:1.3\" name=\"").append(name).append("\">\n");
+        sb.append("    <dependencies>\n");
+        for (String dependency : dependencies) {
+            if (dependency.endsWith("?")) {
+                sb.append("        <module name=\"").append(dependency, 0, dependency.length() - 1).append("\" optional=\"true\"/>\n");
+            } else {
+                sb.append("        <module name=\"").append(dependency).append("\"/>\n");
+            }
+        }
+        sb.append("    </dependencies>\n");
+        sb.append("</module>\n");
+        return sb.toString();
+    }
+
+    private FeaturePack featurePack(String name, List<FeaturePack> dependencies, String... modules) throws Exception {
+        final File file = new File(folder.getRoot(), name + ".zip");
+        final List<String> modulesFiles = new ArrayList<>();
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < modules.length; i++) {
+                if (modules[i] != null) {
+                    final String moduleFile = "modules/system/layers/base/module" + i + "/main/module.xml";
+                    zip.putNextEntry(new ZipEntry(moduleFile));
+                    zip.write(modules[i].getBytes(StandardCharsets.UTF_8));
+                    modulesFiles.add(moduleFile);
+                }
+            }
+        }
+        return new FeaturePack(file, new Artifact("org.test", name, "zip", null, "1.0"), new FeaturePackDescription(), dependencies, null,
+                Collections.<String>emptyList(), modulesFiles, Collections.<String>emptyList());
+    }
+}
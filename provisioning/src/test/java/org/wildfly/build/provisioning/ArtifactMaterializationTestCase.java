@@ -0,0 +1,96 @@
+package org.wildfly.build.provisioning;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.build.ArtifactFileResolver;
+import org.wildfly.build.Locations;
+import org.wildfly.build.common.model.FileFilter;
+import org.wildfly.build.common.model.FilePermission;
+import org.wildfly.build.pack.model.Artifact;
+import org.wildfly.build.pack.model.FeaturePackDescription;
+import org.wildfly.build.pack.model.FeaturePackDescriptionXMLWriter11;
+import org.wildfly.build.provisioning.model.ServerProvisioningDescription;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class ArtifactMaterializationTestCase {
+
+    private static final String MODULE_DIR = Locations.MODULES + "/system/layers/base/org/test/main";
+
+    private static final String MODULE_XML = "<module xmlns=\"urn:jboss:module:1.3\" name=\"org.test\">\n" +
+            "    <resources>\n" +
+            "        <artifact name=\"${org.test:lib}\"/>\n" +
+            "    </resources>\n" +
+            "</module>\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testHardLinkToStore() throws Exception {
+        testHardLink(true);
+    }
+
+    @Test
+    public void testHardLinkToRepository() throws Exception {
+        testHardLink(false);
+    }
+
+    private void testHardLink(boolean store) throws Exception {
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        final File repository = folder.newFolder("repository");
+        final File artifactFile = new File(repository, "lib-1.0.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(artifactFile))) {
+            zip.putNextEntry(new ZipEntry("test.txt"));
+            zip.write("test".getBytes(StandardCharsets.UTF_8));
+        }
+        Files.setPosixFilePermissions(artifactFile.toPath(), PosixFilePermissions.fromString("rw-r--r--"));
+        // a feature pack with the artifact as module resource, and a permission including all files
+        final File featurePackFile = new File(repository, "pack-1.0.zip");
+        final FeaturePackDescription featurePackDescription = new FeaturePackDescription();
+        featurePackDescription.getArtifactVersions().add(new Artifact("org.test", "lib", null, null, "1.0"));
+        final FilePermission filePermission = new FilePermission("700");
+        filePermission.getFilters().add(new FileFilter("*", true));
+        featurePackDescription.getFilePermissions().add(filePermission);
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(featurePackFile))) {
+            zip.putNextEntry(new ZipEntry(Locations.FEATURE_PACK_DESCRIPTION));
+            FeaturePackDescriptionXMLWriter11.INSTANCE.write(featurePackDescription, zip);
+            zip.putNextEntry(new ZipEntry(MODULE_DIR + "/module.xml"));
+            zip.write(MODULE_XML.getBytes(StandardCharsets.UTF_8));
+        }
+        final ArtifactFileResolver artifactFileResolver = new ArtifactFileResolver() {
+            @Override
+            public File getArtifactFile(Artifact artifact) {
+                return artifact.getArtifactId().equals("pack") ? featurePackFile : artifactFile;
+            }
+        };
+        final ServerProvisioningDescription description = new ServerProvisioningDescription();
+        description.setArtifactMaterialization(MaterializationStrategy.HARD_LINK.getName());
+        description.setCopyModuleArtifacts(true);
+        description.getFeaturePacks().add(new ServerProvisioningDescription.FeaturePack(new Artifact("org.test", "pack", "zip", null, "1.0"), null, null, null, null));
+        final File server = new File(folder.getRoot(), "server");
+        final File storeDirectory = store ? new File(folder.getRoot(), "store") : null;
+        new ServerProvisioner(description, server, false, artifactFileResolver, null, 1, false, storeDirectory, null, null).build();
+
+        final File moduleDir = new File(server, MODULE_DIR);
+        // the permission is not set on the linked artifact, neither in the server nor in the store or repository
+        assertEquals("rw-r--r--", getPermissions(new File(moduleDir, "lib-1.0.jar")));
+        assertEquals("rw-r--r--", getPermissions(artifactFile));
+        assertEquals("rwx------", getPermissions(new File(moduleDir, "module.xml")));
+    }
+
+    private static String getPermissions(File file) throws Exception {
+        return PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath()));
+    }
+}
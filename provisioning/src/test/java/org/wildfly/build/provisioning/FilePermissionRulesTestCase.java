@@ -0,0 +1,51 @@
+package org.wildfly.build.provisioning;
+
+import org.junit.Test;
+import org.wildfly.build.common.model.FileFilter;
+import org.wildfly.build.common.model.FilePermission;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FilePermissionRulesTestCase {
+
+    @Test
+    public void testFeaturePackOrder() throws Exception {
+        final FilePermission first = filePermission("755", "bin", "bin/*", "modules/*");
+        final FilePermission second = filePermission("700", "bin/second.sh");
+        final FilePermission shared = filePermission("750", "bin/shared.sh");
+        final FilePermissionRules rules = new FilePermissionRules();
+        // files there before the feature packs, e.g. the modules
+        rules.addFiles(Collections.singletonList("modules/org/test/main/module.xml"));
+        rules.nextFeaturePack();
+        rules.addFiles(Arrays.asList("bin/first.sh", "bin/shared.sh"));
+        rules.addFilePermission(first);
+        rules.addFilePermission(shared);
+        rules.nextFeaturePack();
+        rules.addFiles(Arrays.asList("bin/first.sh", "bin/second.sh", "bin/other.sh", "docs/README.txt"));
+        rules.addFilePermission(second);
+        rules.addFilePermission(shared);
+
+        assertEquals(first.getPermission(), rules.getPermission("modules/org/test/main/module.xml"));
+        assertEquals(first.getPermission(), rules.getPermission("bin"));
+        assertEquals(first.getPermission(), rules.getPermission("bin/first.sh"));
+        assertEquals(shared.getPermission(), rules.getPermission("bin/shared.sh"));
+        assertEquals(second.getPermission(), rules.getPermission("bin/second.sh"));
+        // the first feature pack's permissions don't apply to the second feature pack's files
+        assertNull(rules.getPermission("bin/other.sh"));
+        assertNull(rules.getPermission("docs"));
+        // while they apply to files not provided by any feature pack
+        assertEquals(first.getPermission(), rules.getPermission("bin/existing.sh"));
+    }
+
+    private static FilePermission filePermission(String value, String... patterns) {
+        final FilePermission filePermission = new FilePermission(value);
+        for (String pattern : patterns) {
+            filePermission.getFilters().add(new FileFilter(pattern, true));
+        }
+        return filePermission;
+    }
+}
@@ -0,0 +1,100 @@
+package org.wildfly.build.util;
+
+import org.junit.Test;
+import org.wildfly.build.pack.model.Artifact;
+import org.wildfly.build.pack.model.ModuleIdentifier;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ModuleParserTestCase {
+
+    static final String MODULE_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!-- a module -->\n" +
+            "<module xmlns=\"urn:jboss:module:1.5\" name=\"org.test\" slot=\"1.0\" version=\"${org.test:lib}\">\n" +
+            "    <properties>\n" +
+            "        <property name=\"jboss.api\" value=\"private\"/>\n" +
+            "    </properties>\n" +
+            "    <resources>\n" +
+            "        <resource-root path=\"lib.jar\"/>\n" +
+            "        <artifact name=\"${org.test:lib}\"/>\n" +
+            "        <artifact name=\"${org.test:lib-classified::classifier?jandex}\">\n" +
+            "            <filter>\n" +
+            "                <exclude path=\"META-INF\"/>\n" +
+            "            </filter>\n" +
+            "        </artifact>\n" +
+            "        <artifact name=\"org.test:versioned:1.0\"/>\n" +
+            "        <artifact name=\"org.test:versioned-classified:1.0:classifier\"/>\n" +
+            "    </resources>\n" +
+            "    <dependencies>\n" +
+            "        <module name=\"org.test.a\"/>\n" +
+            "        <module name=\"org.test.b\" optional=\"true\">\n" +
+            "            <imports>\n" +
+            "                <module name=\"org.test.ignored\"/>\n" +
+            "            </imports>\n" +
+            "        </module>\n" +
+            "        <module name=\"org.test.c\" slot=\"2.0\" export=\"true\"/>\n" +
+            "        <system export=\"true\"/>\n" +
+            "    </dependencies>\n" +
+            "    <!-- only the first resources element is considered -->\n" +
+            "    <resources>\n" +
+            "        <artifact name=\"${org.test:ignored}\"/>\n" +
+            "    </resources>\n" +
+            "</module>\n";
+
+    @Test
+    public void testModule() throws Exception {
+        final ModuleParseResult result = parse(MODULE_XML);
+        assertEquals(new ModuleIdentifier("org.test", "1.0"), result.getIdentifier());
+        assertEquals("${org.test:lib}", result.getVersionArtifactName().getValue());
+        assertEquals(Arrays.asList("lib.jar"), result.getResourceRoots());
+
+        final List<ModuleParseResult.ArtifactName> artifacts = result.getArtifacts();
+        assertEquals(4, artifacts.size());
+        // expressions
+        assertEquals("org.test:lib", artifacts.get(0).getArtifactCoords());
+        assertNull(artifacts.get(0).getOptions());
+        assertEquals("${org.test:lib}", artifacts.get(0).getValue());
+        assertFalse(artifacts.get(0).hasVersion());
+        assertEquals("org.test:lib-classified::classifier", artifacts.get(1).getArtifactCoords());
+        assertEquals("jandex", artifacts.get(1).getOptions());
+        assertEquals(new Artifact("org.test", "lib-classified", null, "classifier", null), artifacts.get(1).getArtifact());
+        // versioned artifacts, in the jboss modules format
+        assertEquals(new Artifact("org.test", "versioned", null, null, "1.0"), artifacts.get(2).getArtifact());
+        assertTrue(artifacts.get(2).hasVersion());
+        assertEquals("org.test:versioned:1.0", artifacts.get(2).getJBossModulesArtifactString());
+        assertEquals(new Artifact("org.test", "versioned-classified", null, "classifier", "1.0"), artifacts.get(3).getArtifact());
+        assertEquals("org.test:versioned-classified:1.0:classifier", artifacts.get(3).getJBossModulesArtifactString());
+
+        final List<ModuleParseResult.ModuleDependency> dependencies = result.getDependencies();
+        assertEquals(3, dependencies.size());
+        assertEquals(new ModuleIdentifier("org.test.a", "main"), dependencies.get(0).getModuleId());
+        assertFalse(dependencies.get(0).isOptional());
+        assertEquals(new ModuleIdentifier("org.test.b", "main"), dependencies.get(1).getModuleId());
+        assertTrue(dependencies.get(1).isOptional());
+        assertEquals(new ModuleIdentifier("org.test.c", "2.0"), dependencies.get(2).getModuleId());
+        assertFalse(dependencies.get(2).isOptional());
+    }
+
+    @Test
+    public void testModuleAlias() throws Exception {
+        final ModuleParseResult result = parse("<module-alias xmlns=\"urn:jboss:module:1.3\" name=\"org.test.alias\" target-name=\"org.test\" target-slot=\"1.0\"/>");
+        assertEquals(new ModuleIdentifier("org.test.alias", "main"), result.getIdentifier());
+        assertEquals(1, result.getDependencies().size());
+        assertEquals(new ModuleIdentifier("org.test", "1.0"), result.getDependencies().get(0).getModuleId());
+        assertFalse(result.getDependencies().get(0).isOptional());
+        assertTrue(result.getArtifacts().isEmpty());
+        assertNull(result.getVersionArtifactName());
+    }
+
+    static ModuleParseResult parse(String moduleXml) throws Exception {
+        return ModuleParser.parse(new ByteArrayInputStream(moduleXml.getBytes(StandardCharsets.UTF_8)));
+    }
+}
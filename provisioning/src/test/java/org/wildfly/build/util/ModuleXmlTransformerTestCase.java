@@ -0,0 +1,97 @@
+package org.wildfly.build.util;
+
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ModuleXmlTransformerTestCase {
+
+    private static final String TRANSFORMED_MODULE_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!-- a module -->\n" +
+            "<module xmlns=\"urn:jboss:module:1.5\" name=\"org.test\" slot=\"1.0\" version=\"1.0\">\n" +
+            "    <properties>\n" +
+            "        <property name=\"jboss.api\" value=\"private\"/>\n" +
+            "    </properties>\n" +
+            "    <resources>\n" +
+            "        <resource-root path=\"lib.jar\"/>\n" +
+            "        <artifact name=\"org.test:lib:1.0\"/>\n" +
+            "        <resource-root path=\"lib-classified-1.0-classifier.jar\">\n" +
+            "            <filter>\n" +
+            "                <exclude path=\"META-INF\"/>\n" +
+            "            </filter>\n" +
+            "        </resource-root>\n" +
+            "        <artifact name=\"org.test:versioned:1.0\"/>\n" +
+            "        <artifact name=\"org.test:versioned-classified:1.0:classifier\"/>\n" +
+            "    </resources>\n" +
+            "    <dependencies>\n" +
+            "        <module name=\"org.test.a\"/>\n" +
+            "        <module name=\"org.test.b\" optional=\"true\">\n" +
+            "            <imports>\n" +
+            "                <module name=\"org.test.ignored\"/>\n" +
+            "            </imports>\n" +
+            "        </module>\n" +
+            "        <module name=\"org.test.c\" slot=\"2.0\" export=\"true\"/>\n" +
+            "        <system export=\"true\"/>\n" +
+            "    </dependencies>\n" +
+            "    <!-- only the first resources element is considered -->\n" +
+            "    <resources>\n" +
+            "        <artifact name=\"${org.test:ignored}\"/>\n" +
+            "    </resources>\n" +
+            "</module>\n";
+
+    @Test
+    public void testTransform() throws Exception {
+        final ModuleParseResult result = ModuleParserTestCase.parse(ModuleParserTestCase.MODULE_XML);
+        final List<ModuleParseResult.ArtifactName> artifacts = result.getArtifacts();
+        final ModuleXmlTransformer transformer = new ModuleXmlTransformer(result);
+        // an expression replaced by its jboss modules artifact, an artifact replaced by a resource root, and versioned artifacts kept
+        transformer.setArtifactName(artifacts.get(0), "org.test:lib:1.0");
+        transformer.setResourceRoot(artifacts.get(1), "lib-classified-1.0-classifier.jar");
+        transformer.setVersion("1.0");
+        assertEquals(TRANSFORMED_MODULE_XML, transform(transformer, ModuleParserTestCase.MODULE_XML));
+    }
+
+    @Test
+    public void testTransformUnchanged() throws Exception {
+        final String moduleXml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<module xmlns=\"urn:jboss:module:1.3\" name=\"org.test\">\n" +
+                "    <properties>\n" +
+                "        <property name=\"text\" value=\"a &amp; &quot;b&quot;\"/>\n" +
+                "    </properties>\n" +
+                "    <resources>\n" +
+                "        <artifact name=\"${org.test:lib}\"/>\n" +
+                "    </resources>\n" +
+                "</module>\n";
+        final ModuleXmlTransformer transformer = new ModuleXmlTransformer(ModuleParserTestCase.parse(moduleXml));
+        assertEquals(moduleXml, transform(transformer, moduleXml));
+    }
+
+    @Test
+    public void testTransformOtherModuleXml() throws Exception {
+        final ModuleXmlTransformer transformer = new ModuleXmlTransformer(ModuleParserTestCase.parse(ModuleParserTestCase.MODULE_XML));
+        final String moduleXml = "<module xmlns=\"urn:jboss:module:1.3\" name=\"org.test\">\n" +
+                "    <resources>\n" +
+                "        <artifact name=\"${org.test:other}\"/>\n" +
+                "    </resources>\n" +
+                "</module>\n";
+        try {
+            transform(transformer, moduleXml);
+            fail("the artifacts do not match the parse result");
+        } catch (XMLStreamException e) {
+            // expected
+        }
+    }
+
+    private static String transform(ModuleXmlTransformer transformer, String moduleXml) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transformer.transform(new ByteArrayInputStream(moduleXml.getBytes(StandardCharsets.UTF_8)), out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
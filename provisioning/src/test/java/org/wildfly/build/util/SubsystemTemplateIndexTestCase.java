@@ -0,0 +1,35 @@
+package org.wildfly.build.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SubsystemTemplateIndexTestCase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStoreAndLoad() throws Exception {
+        final File indexFile = new File(folder.getRoot(), "index");
+        // separators, line breaks and the escape character in file and template names
+        final File zipFile = folder.newFile("a\tb,c%2C.jar");
+        final File emptyZipFile = folder.newFile("empty.jar");
+        final List<String> subsystemTemplates = Arrays.asList("a,b.xml", "c\td.xml", "e%f.xml", "g\nh.xml", "i.xml");
+        final SubsystemTemplateIndex index = SubsystemTemplateIndex.load(indexFile);
+        index.putSubsystemTemplates(zipFile, subsystemTemplates);
+        index.putSubsystemTemplates(emptyZipFile, Collections.<String>emptyList());
+        index.store();
+
+        final SubsystemTemplateIndex loadedIndex = SubsystemTemplateIndex.load(indexFile);
+        assertEquals(subsystemTemplates, loadedIndex.getSubsystemTemplates(zipFile));
+        assertEquals(Collections.<String>emptyList(), loadedIndex.getSubsystemTemplates(emptyZipFile));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.util;
+
+import org.junit.Test;
+import org.wildfly.build.util.xml.ParsingUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WildcardMatcherTestCase {
+
+    private static final List<String> EXPRESSIONS = Arrays.asList(
+            "bin/*.sh",
+            "bin/*",
+            "modules/system/layers/base/org/jboss/as/*/main/module.xml",
+            "*.jar",
+            "docs/schema/jboss-as-?.?.xsd",
+            "appclient/configuration/*",
+            "*/README.txt",
+            "standalone/configuration/standalone-*.xml",
+            "welcome-content/*.(png)",
+            "*");
+
+    private static final List<String> PATHS = Arrays.asList(
+            "bin/standalone.sh",
+            "bin/standalone.conf",
+            "bin/client/jboss-cli-client.jar",
+            "modules/system/layers/base/org/jboss/as/ee/main/module.xml",
+            "modules/system/layers/base/org/jboss/as/ee/main/wildfly-ee.jar",
+            "modules/system/layers/base/org/jboss/logging/main/module.xml",
+            "docs/schema/jboss-as-1.0.xsd",
+            "docs/schema/jboss-as-10.0.xsd",
+            "appclient/configuration/appclient.xml",
+            "docs/contrib/README.txt",
+            "standalone/configuration/standalone-full-ha.xml",
+            "standalone/configuration/standalone.xml",
+            "welcome-content/logo.(png)",
+            "welcome-content/logo.png",
+            "",
+            "caf\u00e9/\u00fcber.jar");
+
+    @Test
+    public void firstMatchTest() {
+        final WildcardMatcher matcher = new WildcardMatcher(EXPRESSIONS);
+        for (String path : PATHS) {
+            // twice, the second with the cached automaton states
+            assertEquals(path, regexFirstMatch(EXPRESSIONS, path), matcher.firstMatch(path));
+            assertEquals(path, regexFirstMatch(EXPRESSIONS, path), matcher.firstMatch(path));
+        }
+    }
+
+    @Test
+    public void eachExpressionTest() {
+        for (String expression : EXPRESSIONS) {
+            final WildcardMatcher matcher = WildcardMatcher.of(expression);
+            for (String path : PATHS) {
+                assertEquals(expression + " " + path, regexFirstMatch(Collections.singletonList(expression), path) == 0, matcher.matches(path));
+            }
+        }
+    }
+
+    @Test
+    public void noExpressionsTest() {
+        final WildcardMatcher matcher = new WildcardMatcher(Collections.<String>emptyList());
+        assertEquals(-1, matcher.firstMatch(""));
+        assertEquals(-1, matcher.firstMatch("bin/standalone.sh"));
+    }
+
+    @Test
+    public void emptyExpressionTest() {
+        final WildcardMatcher matcher = WildcardMatcher.of("");
+        assertTrue(matcher.matches(""));
+        assertFalse(matcher.matches("a"));
+    }
+
+    private static int regexFirstMatch(List<String> expressions, String path) {
+        for (int i = 0; i < expressions.size(); i++) {
+            if (Pattern.compile(ParsingUtils.wildcardToJavaRegexp(expressions.get(i))).matcher(path).matches()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void filterListTest() {
+        final WildcardFilterList<String> filters = new WildcardFilterList<String>() {
+            @Override
+            protected String getPattern(String filter) {
+                // filters starting with ! are not matched
+                return filter.startsWith("!") ? null : filter;
+            }
+        };
+        assertEquals(null, filters.firstMatch("bin/run.sh"));
+        filters.add("!bin/*");
+        filters.add("bin/*.bat");
+        filters.add("*.sh");
+        assertEquals("*.sh", filters.firstMatch("bin/run.sh"));
+        // the matcher is recompiled after a filter is replaced, or removed
+        filters.set(1, "bin/*");
+        assertEquals("bin/*", filters.firstMatch("bin/run.sh"));
+        filters.remove(1);
+        assertEquals("*.sh", filters.firstMatch("bin/run.sh"));
+        filters.clear();
+        assertFalse(filters.matches("bin/run.sh"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.build.util.xml;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the formatting against a golden file, written by the writer before its indentation was cached.
+ */
+public class FormattingXMLStreamWriterTestCase {
+
+    private static final String GOLDEN_FILE = "formatted.xml";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void fileTest() throws IOException, XMLStreamException {
+        final File file = temporaryFolder.newFile();
+        final FormattingXMLStreamWriter writer = FormattingXMLStreamWriter.create(file);
+        try {
+            write(writer);
+        } finally {
+            writer.close();
+        }
+        assertEquals(readGoldenFile(), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void delegateTest() throws XMLStreamException, IOException {
+        final StringWriter stringWriter = new StringWriter();
+        final XMLStreamWriter writer = new FormattingXMLStreamWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(stringWriter));
+        write(writer);
+        writer.close();
+        assertEquals(readGoldenFile(), stringWriter.toString());
+    }
+
+    static void write(XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartDocument();
+        createDocument().marshall(writer);
+        writer.writeEndDocument();
+    }
+
+    static ElementNode createDocument() {
+        final ElementNode root = new ElementNode(null, "server", "urn:jboss:domain:4.0");
+        root.addChild(new CommentNode(" single line comment "));
+        final ElementNode extensions = new ElementNode(root, "extensions");
+        for (String module : new String[] {"org.jboss.as.ee", "org.jboss.as.logging"}) {
+            final ElementNode extension = new ElementNode(extensions, "extension");
+            extension.addAttribute("module", new AttributeValue(module));
+            extensions.addChild(extension);
+        }
+        root.addChild(extensions);
+        final ElementNode profile = new ElementNode(root, "profile");
+        profile.addChild(new CommentNode("a comment\nspanning\nlines"));
+        final ElementNode subsystem = new ElementNode(profile, "subsystem", "urn:jboss:domain:logging:3.0");
+        final ElementNode handler = new ElementNode(subsystem, "console-handler");
+        handler.addAttribute("name", new AttributeValue("CONSOLE"));
+        final ElementNode formatter = new ElementNode(handler, "formatter");
+        formatter.addChild(new TextNode("%d{HH:mm:ss,SSS} %-5p [%c] (%t) %s%e%n & <more>"));
+        handler.addChild(formatter);
+        final ElementNode script = new ElementNode(handler, "script");
+        script.addChild(new TextNode("\n    first line\n    second line\n"));
+        handler.addChild(script);
+        final ElementNode data = new ElementNode(handler, "data");
+        data.addChild(new CDataNode("raw <data> & stuff"));
+        handler.addChild(data);
+        handler.addChild(new ElementNode(handler, "empty"));
+        subsystem.addChild(handler);
+        profile.addChild(subsystem);
+        root.addChild(profile);
+        // deeper than the cached indentation
+        ElementNode parent = root;
+        for (int i = 0; i < 40; i++) {
+            final ElementNode child = new ElementNode(parent, "level");
+            child.addAttribute("depth", new AttributeValue(String.valueOf(i)));
+            parent.addChild(child);
+            parent = child;
+        }
+        parent.addChild(new CommentNode("deep\ncomment"));
+        parent.addChild(new TextNode("deep text"));
+        return root;
+    }
+
+    private String readGoldenFile() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(GOLDEN_FILE)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}